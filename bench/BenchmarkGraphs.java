@@ -0,0 +1,34 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Resolves the graph names used as benchmark parameters to edge list files. A name is either
+ * the path of an existing edge list (such as wikiCS.txt or a test/ fixture), or
+ * "MODEL-VERTICES-EDGES" for a graph written by GraphGenerator, where MODEL is "rmat" or "pa"
+ * (preferential attachment). Generated graphs are seeded, so every run benchmarks the same
+ * graph, and are written to the temporary directory once and reused.
+ */
+class BenchmarkGraphs {
+    private static final long SEED = 311;
+
+    static String file(String name) throws IOException {
+        GraphGenerator.Model model;
+        if (name.startsWith("rmat-")) {
+            model = GraphGenerator.Model.RMAT;
+        } else if (name.startsWith("pa-")) {
+            model = GraphGenerator.Model.PREFERENTIAL_ATTACHMENT;
+        } else {
+            return name;
+        }
+        String[] parts = name.split("-");
+        File file = new File(System.getProperty("java.io.tmpdir"), "GraphProcessorBenchmark-" + name + ".txt");
+        if (!file.exists()) {
+            File temp = new File(file.getPath() + ".tmp");
+            new GraphGenerator(model, Integer.parseInt(parts[1]), Long.parseLong(parts[2]), SEED).write(temp.getPath());
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not create " + file);
+            }
+        }
+        return file.getPath();
+    }
+}
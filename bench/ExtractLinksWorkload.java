@@ -0,0 +1,34 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import benchmarks.ExtractLinksBenchmark;
+
+/**
+ * The link extraction ExtractLinksBenchmark measures, on a page read in setUp
+ */
+public class ExtractLinksWorkload implements ExtractLinksBenchmark.Extractions {
+    private WikiCrawler crawler;
+    private String doc;
+    private byte[] bytes;
+
+    @Override
+    public void setUp(String page) throws IOException {
+        crawler = new WikiCrawler("/wiki/Computer_Science", 1, "ExtractLinksBenchmark.txt");
+        bytes = Files.readAllBytes(Paths.get(page));
+        doc = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public ArrayList<String> extractLinks() {
+        return crawler.extractLinks(doc);
+    }
+
+    @Override
+    public ArrayList<String> extractLinksFromBytes() throws IOException {
+        return LinkScanner.scan(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.File;
+import java.io.IOException;
+
+import benchmarks.LoadBenchmark;
+
+/**
+ * The ways LoadBenchmark loads a graph, from its edge list or from a snapshot saved in setUp
+ */
+public class LoadWorkload implements LoadBenchmark.Loads {
+    private String file;
+    private String snapshotFile;
+
+    @Override
+    public void setUp(String graph) throws IOException {
+        file = BenchmarkGraphs.file(graph);
+        File snapshot = File.createTempFile("LoadBenchmark", ".snapshot");
+        snapshot.deleteOnExit();
+        snapshotFile = snapshot.getPath();
+        new GraphProcessor(file).saveSnapshot(snapshotFile);
+    }
+
+    @Override
+    public EdgeListLoader parse() throws IOException {
+        return new EdgeListLoader(file);
+    }
+
+    @Override
+    public GraphProcessor load() throws IOException {
+        return new GraphProcessor(file);
+    }
+
+    @Override
+    public GraphProcessor loadParallelSCC() throws IOException {
+        return new GraphProcessor(file, true);
+    }
+
+    @Override
+    public GraphProcessor loadSnapshot() throws IOException {
+        return new GraphProcessor(file, snapshotFile);
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import benchmarks.QueryBenchmark;
+
+/**
+ * The queries of QueryBenchmark, on a frozen GraphProcessor and a seeded list of random vertex
+ * pairs
+ */
+public class QueryWorkload implements QueryBenchmark.Queries {
+    private GraphProcessor g;
+    private String[] from;
+    private String[] to;
+
+    @Override
+    public void setUp(String graph, int numPairs) throws IOException {
+        g = new GraphProcessor(BenchmarkGraphs.file(graph));
+        from = new String[numPairs];
+        to = new String[numPairs];
+        Random random = new Random(311);
+        for (int i = 0; i < numPairs; i++) {
+            from[i] = g.vertexName(random.nextInt(g.numVertices()));
+            to[i] = g.vertexName(random.nextInt(g.numVertices()));
+        }
+        // Also builds the lazily built indexes, before measuring starts
+        g.freeze();
+    }
+
+    @Override
+    public ArrayList<String> bfsPath(int i) {
+        return g.bfsPath(from[i], to[i]);
+    }
+
+    @Override
+    public boolean sameComponent(int i) {
+        return g.sameComponent(from[i], to[i]);
+    }
+
+    @Override
+    public ArrayList<String> componentVertices(int i) {
+        return g.componentVertices(from[i]);
+    }
+
+    @Override
+    public boolean reachable(int i) {
+        return g.reachable(from[i], to[i]);
+    }
+
+    @Override
+    public int[] distancesFrom(int i) {
+        return g.distancesFrom(from[i]);
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark for WikiCrawler.extractLinks on saved wiki pages: the Computer Science page used
+ * by the tests, and the small pages served to the crawler test. extractLinksFromBytes scans
+ * the page's bytes, as the crawler does while a page downloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractLinksBenchmark {
+    /**
+     * The ways of extracting the links of a page. Implemented by ExtractLinksWorkload.
+     */
+    public interface Extractions {
+        void setUp(String page) throws IOException;
+
+        Object extractLinks();
+
+        Object extractLinksFromBytes() throws IOException;
+    }
+
+    @Param({"test/_WikiCrawlerTest_extractLinks_test_data.txt", "test/server/wiki/AA.html"})
+    public String page;
+
+    private Extractions extractions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        extractions = Workloads.create(Extractions.class, "ExtractLinksWorkload");
+        extractions.setUp(page);
+    }
+
+    @Benchmark
+    public Object extractLinks() {
+        return extractions.extractLinks();
+    }
+
+    @Benchmark
+    public Object extractLinksFromBytes() throws IOException {
+        return extractions.extractLinksFromBytes();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for building a GraphProcessor: parsing the edge list on its own, the whole
+ * constructor (parsing, adjacency and SCC discovery, with the sequential or parallel SCC
+ * algorithm), and loading from a snapshot. The time spent on SCC discovery is the difference
+ * between load and parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xss512k", "-Xmx4g"})
+public class LoadBenchmark {
+    /**
+     * The ways of loading the graph. Implemented by LoadWorkload.
+     */
+    public interface Loads {
+        void setUp(String graph) throws IOException;
+
+        Object parse() throws IOException;
+
+        Object load() throws IOException;
+
+        Object loadParallelSCC() throws IOException;
+
+        Object loadSnapshot() throws IOException;
+    }
+
+    @Param({"wikiCS.txt", "test/_GraphProcessorTest_data.txt", "pa-1000000-8000000", "rmat-1000000-8000000"})
+    public String graph;
+
+    private Loads loads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        loads = Workloads.create(Loads.class, "LoadWorkload");
+        loads.setUp(graph);
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        return loads.parse();
+    }
+
+    @Benchmark
+    public Object load() throws IOException {
+        return loads.load();
+    }
+
+    @Benchmark
+    public Object loadParallelSCC() throws IOException {
+        return loads.loadParallelSCC();
+    }
+
+    @Benchmark
+    public Object loadSnapshot() throws IOException {
+        return loads.loadSnapshot();
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for queries on a loaded GraphProcessor. Each invocation queries the next of a
+ * fixed, seeded list of random vertex pairs, so every run asks the same questions. The graph is
+ * frozen and shared, and each benchmark thread walks the pairs on its own, so running with
+ * -t N measures how the queries scale across N threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xss512k", "-Xmx4g"})
+public class QueryBenchmark {
+    // A power of two, so the next pair is found with a mask
+    private static final int NUM_PAIRS = 1 << 12;
+
+    /**
+     * The queries, on pair 'i' of the list. Implemented by QueryWorkload.
+     */
+    public interface Queries {
+        void setUp(String graph, int numPairs) throws IOException;
+
+        Object bfsPath(int i);
+
+        boolean sameComponent(int i);
+
+        Object componentVertices(int i);
+
+        boolean reachable(int i);
+
+        int[] distancesFrom(int i);
+    }
+
+    @Param({"wikiCS.txt", "test/_GraphProcessorTest_data.txt", "pa-1000000-8000000", "rmat-1000000-8000000"})
+    public String graph;
+
+    private Queries queries;
+
+    // The index of a benchmark thread's next pair
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = 0;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        queries = Workloads.create(Queries.class, "QueryWorkload");
+        queries.setUp(graph, NUM_PAIRS);
+    }
+
+    @Benchmark
+    public Object bfsPath(Cursor cursor) {
+        return queries.bfsPath(cursor.next++ & (NUM_PAIRS - 1));
+    }
+
+    @Benchmark
+    public boolean sameComponent(Cursor cursor) {
+        return queries.sameComponent(cursor.next++ & (NUM_PAIRS - 1));
+    }
+
+    @Benchmark
+    public Object componentVertices(Cursor cursor) {
+        return queries.componentVertices(cursor.next++ & (NUM_PAIRS - 1));
+    }
+
+    @Benchmark
+    public boolean reachable(Cursor cursor) {
+        return queries.reachable(cursor.next++ & (NUM_PAIRS - 1));
+    }
+
+    @Benchmark
+    public int[] distancesFrom(Cursor cursor) {
+        return queries.distancesFrom(cursor.next++ & (NUM_PAIRS - 1));
+    }
+}
@@ -0,0 +1,21 @@
+package benchmarks;
+
+/**
+ * JMH doesn't allow benchmarks in the default package, and classes in a named package can't
+ * refer to the graph classes, which are in it. So each benchmark declares the operations it
+ * measures as an interface, and a public default-package class in bench/ implements them on the
+ * graph classes; this creates that class by name. The interface calls have a single
+ * implementation, so the JIT inlines them.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    static <T> T create(Class<T> type, String className) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create the benchmark workload " + className, e);
+        }
+    }
+}
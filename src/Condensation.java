@@ -0,0 +1,277 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The condensation of a graph: a DAG with one node per SCC and an edge between two components
+ * whenever the graph has an edge between their members. Alongside the DAG it keeps a
+ * reachability index, so that most "can component a reach component b?" queries are answered
+ * without a search.
+ * <p>
+ * The index is made of GRAIL-style interval labels. Each of NUM_LABELS randomized depth-first
+ * traversals of the DAG gives every component its post-order rank and the lowest rank among its
+ * descendants; if a can reach b, b's interval [low, rank] lies inside a's in every traversal. A
+ * topological rank rules out more pairs, and the pre-order of the first traversal proves
+ * reachability for pairs in the same depth-first tree. Pairs the labels can't decide are
+ * answered by a depth-first search of the DAG that skips every component whose labels rule b out.
+ */
+class Condensation {
+    // The number of randomized traversals labelling each component
+    static final int NUM_LABELS = 2;
+
+    // The traversals are seeded, so the labels are the same from run to run
+    private static final long SEED = 0x5EED;
+
+    int numComponents;
+
+    // Compressed-sparse-row adjacency of the DAG. The children of component 'c' are
+    // targets[offsets[c]] ... targets[offsets[c + 1] - 1], without duplicates
+    int[] offsets;
+    int[] targets;
+
+    // Every edge goes from a lower topological rank to a higher one
+    int[] topologicalRank;
+
+    // low[i][c] and rank[i][c] are the interval label of component 'c' in traversal 'i'
+    private int[][] low = new int[NUM_LABELS][];
+    private int[][] rank = new int[NUM_LABELS][];
+    // The pre-order of the first traversal
+    private int[] preorder;
+
+    // Scratch space for searches the labels can't decide. A search takes one from the pool
+    // for its duration, so concurrent queries never share one.
+    private ConcurrentLinkedQueue<Search> searches = new ConcurrentLinkedQueue<>();
+
+    // Counts the components and edges those searches visit
+    private GraphMetrics metrics;
+
+    /**
+     * @param offsets          The compressed-sparse-row adjacency of the graph
+     * @param targets          See offsets
+     * @param componentOf      The component id of every vertex
+     * @param componentOffsets The members of component 'c' are componentMembers[componentOffsets[c]] ...
+     *                         componentMembers[componentOffsets[c + 1] - 1]
+     * @param componentMembers See componentOffsets
+     * @param metrics          The metrics of the graph's reachable() queries
+     */
+    Condensation(int[] offsets, int[] targets, int[] componentOf, int[] componentOffsets, int[] componentMembers,
+                 GraphMetrics metrics) {
+        this.metrics = metrics;
+        numComponents = componentOffsets.length - 1;
+        initEdges(offsets, targets, componentOf, componentOffsets, componentMembers);
+        int[] roots = initTopologicalRank();
+        Random random = new Random(SEED);
+        for (int i = 0; i < NUM_LABELS; i++) {
+            label(i, roots, random);
+        }
+    }
+
+    /**
+     * @return 'true' if there is a path from component a to component b. Every component can
+     * reach itself.
+     */
+    boolean reachable(int a, int b) {
+        if (a == b) {
+            return true;
+        }
+        if (!mayReach(a, b)) {
+            return false;
+        }
+        if (preorder[a] < preorder[b] && rank[0][b] < rank[0][a]) {
+            // b is a descendant of a in the first traversal's depth-first tree
+            return true;
+        }
+
+        Search search = searches.poll();
+        if (search == null) {
+            search = new Search();
+        }
+        boolean found = search.run(a, b);
+        searches.offer(search);
+        return found;
+    }
+
+    // A depth-first search of the DAG, skipping every component the labels rule out
+    private class Search {
+        private int epoch = 0;
+        private int[] visited = new int[numComponents];
+        private int[] stack = new int[numComponents];
+
+        boolean run(int a, int b) {
+            if (++epoch == 0) {
+                Arrays.fill(visited, 0);
+                epoch = 1;
+            }
+            int top = 0;
+            stack[top++] = a;
+            visited[a] = epoch;
+            long components = 1, edges = 0;
+            boolean found = false;
+            search:
+            while (top > 0) {
+                int c = stack[--top];
+                for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                    int child = targets[i];
+                    edges++;
+                    if (child == b) {
+                        found = true;
+                        break search;
+                    }
+                    if (visited[child] != epoch && mayReach(child, b)) {
+                        visited[child] = epoch;
+                        stack[top++] = child;
+                        components++;
+                    }
+                }
+            }
+            metrics.visited(GraphMetrics.Query.REACHABLE, components, edges);
+            return found;
+        }
+    }
+
+    /**
+     * @return An estimate of the heap used by the DAG, its labels and the search scratch space, in bytes
+     */
+    long bytes() {
+        return 4L * (offsets.length + targets.length
+                + (2 + 2 * NUM_LABELS + 2 * searches.size()) * (long) numComponents);
+    }
+
+    // Returns 'false' if the labels prove that a can't reach b (a != b)
+    private boolean mayReach(int a, int b) {
+        if (topologicalRank[a] >= topologicalRank[b]) {
+            return false;
+        }
+        for (int i = 0; i < NUM_LABELS; i++) {
+            if (low[i][b] < low[i][a] || rank[i][b] > rank[i][a]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Collects the edges between components, visiting the members of one component at a
+    // time so each row can be deduplicated as it is written
+    private void initEdges(int[] graphOffsets, int[] graphTargets, int[] componentOf,
+                           int[] componentOffsets, int[] componentMembers) {
+        offsets = new int[numComponents + 1];
+        targets = new int[16];
+        int[] lastSeenIn = new int[numComponents];
+        Arrays.fill(lastSeenIn, -1);
+        int numEdges = 0;
+        for (int c = 0; c < numComponents; c++) {
+            for (int m = componentOffsets[c]; m < componentOffsets[c + 1]; m++) {
+                int v = componentMembers[m];
+                for (int i = graphOffsets[v]; i < graphOffsets[v + 1]; i++) {
+                    int child = componentOf[graphTargets[i]];
+                    if (child != c && lastSeenIn[child] != c) {
+                        lastSeenIn[child] = c;
+                        if (numEdges == targets.length) {
+                            targets = Arrays.copyOf(targets, 2 * numEdges);
+                        }
+                        targets[numEdges++] = child;
+                    }
+                }
+            }
+            offsets[c + 1] = numEdges;
+        }
+        targets = Arrays.copyOf(targets, numEdges);
+    }
+
+    // Ranks the components in topological order (Kahn's algorithm), and returns the
+    // components without parents
+    private int[] initTopologicalRank() {
+        int[] inDegree = new int[numComponents];
+        for (int target : targets) {
+            inDegree[target]++;
+        }
+        int[] queue = new int[numComponents];
+        int head = 0, tail = 0;
+        for (int c = 0; c < numComponents; c++) {
+            if (inDegree[c] == 0) {
+                queue[tail++] = c;
+            }
+        }
+        int[] roots = Arrays.copyOf(queue, tail);
+
+        topologicalRank = new int[numComponents];
+        while (head < tail) {
+            int c = queue[head];
+            topologicalRank[c] = head++;
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                if (--inDegree[targets[i]] == 0) {
+                    queue[tail++] = targets[i];
+                }
+            }
+        }
+        return roots;
+    }
+
+    // Labels every component with one randomized depth-first traversal of the DAG: the roots
+    // are visited in a random order, and each component's children starting from a random one
+    private void label(int traversal, int[] roots, Random random) {
+        int[] low = new int[numComponents];
+        int[] rank = new int[numComponents];
+        int[] preorder = (traversal == 0) ? new int[numComponents] : null;
+        // Components not yet visited have rank 0; ranks start at 1
+        int nextRank = 1;
+        int nextPreorder = 0;
+
+        int[] order = roots.clone();
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        // Depth-first search with an explicit stack. firstEdge[c] is the random child the
+        // search of 'c' starts from, and edgesDone[c] how many children it has been through
+        int[] stack = new int[numComponents];
+        int[] firstEdge = new int[numComponents];
+        int[] edgesDone = new int[numComponents];
+        for (int root : order) {
+            int top = 0;
+            stack[top++] = root;
+            rank[root] = -1;
+            start(root, firstEdge, random);
+            if (preorder != null) {
+                preorder[root] = nextPreorder++;
+            }
+            while (top > 0) {
+                int c = stack[top - 1];
+                int degree = offsets[c + 1] - offsets[c];
+                if (edgesDone[c] < degree) {
+                    int child = targets[offsets[c] + (firstEdge[c] + edgesDone[c]++) % degree];
+                    if (rank[child] == 0) {
+                        stack[top++] = child;
+                        rank[child] = -1;
+                        start(child, firstEdge, random);
+                        if (preorder != null) {
+                            preorder[child] = nextPreorder++;
+                        }
+                    }
+                } else {
+                    // Every child is finished, since the DAG has no edges back up the stack
+                    top--;
+                    rank[c] = nextRank++;
+                    low[c] = rank[c];
+                    for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                        low[c] = Math.min(low[c], low[targets[i]]);
+                    }
+                }
+            }
+        }
+
+        this.low[traversal] = low;
+        this.rank[traversal] = rank;
+        if (preorder != null) {
+            this.preorder = preorder;
+        }
+    }
+
+    private void start(int c, int[] firstEdge, Random random) {
+        int degree = offsets[c + 1] - offsets[c];
+        firstEdge[c] = (degree > 1) ? random.nextInt(degree) : 0;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * The vertices of a graph ordered by degree, for one direction of its edges. The vertices are
+ * counting-sorted by degree once, in O(vertices + largest degree), so the k vertices with the
+ * highest degree are the first k of the order and the degree histogram is the sort's counts.
+ */
+class DegreeIndex {
+    // histogram[d] is the number of vertices with degree d
+    int[] histogram;
+
+    // Every vertex id, highest degree first; vertices with the same degree are in id order
+    int[] byDegree;
+
+    /**
+     * @param offsets The offsets of a compressed-sparse-row adjacency: vertex 'v' has degree
+     *                offsets[v + 1] - offsets[v]
+     */
+    DegreeIndex(int[] offsets) {
+        int numVertices = offsets.length - 1;
+        int maxDegree = 0;
+        for (int v = 0; v < numVertices; v++) {
+            maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+        }
+        histogram = new int[maxDegree + 1];
+        for (int v = 0; v < numVertices; v++) {
+            histogram[offsets[v + 1] - offsets[v]]++;
+        }
+
+        // next[d] starts at the number of vertices with a degree higher than d
+        int[] next = new int[maxDegree + 1];
+        for (int d = maxDegree - 1; d >= 0; d--) {
+            next[d] = next[d + 1] + histogram[d + 1];
+        }
+        byDegree = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            byDegree[next[offsets[v + 1] - offsets[v]]++] = v;
+        }
+    }
+
+    /**
+     * @return An estimate of the heap used by the index, in bytes
+     */
+    long bytes() {
+        return 4L * (histogram.length + byDegree.length);
+    }
+}
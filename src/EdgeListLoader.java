@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads an edge list file into interned vertex ids. The file is in the format written by
+ * WikiCrawler: the number of vertices on the first line, then one "from to" edge per line.
+ * <p>
+ * The file is memory-mapped and split into newline-aligned chunks, which are parsed in parallel
+ * straight from the mapped bytes. Each chunk interns the vertices it sees into its own
+ * dictionary, so only one String is created per distinct vertex per chunk. The chunks are then
+ * merged in file order, so vertex ids are assigned in order of first appearance in the file and
+ * the edges keep their file order.
+ */
+class EdgeListLoader {
+    private static final String ERR_MESSAGE = "Incorrect input file format!";
+
+    // Files are split into chunks of about this many bytes
+    static final int CHUNK_BYTES = 1 << 24;
+
+    // The vertex count from the first line of the file
+    int headerVertices = 42;
+
+    // Vertex-interning dictionary: vertex name -> id, and id -> vertex name
+    HashMap<String, Integer> vertexIds;
+    String[] vertexNames;
+    int numVertices = 0;
+
+    // The edges, in file order: edge 'i' goes from edgeFrom[i] to edgeTo[i]
+    int[] edgeFrom;
+    int[] edgeTo;
+    int numEdges = 0;
+
+    /**
+     * @param filename The path of the edge list file
+     */
+    EdgeListLoader(String filename) throws IOException {
+        Chunk[] chunks;
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            long bodyStart = readHeader(channel, size);
+            chunks = parseChunks(channel, chunkBoundaries(channel, bodyStart, size));
+        }
+        merge(chunks);
+    }
+
+    // Parses the vertex count on the first line, and returns the offset of the line after it
+    private long readHeader(FileChannel channel, long size) throws IOException {
+        if (size == 0) {
+            return 0;
+        }
+        long end = nextLineStart(channel, 0, size);
+        ByteBuffer header = ByteBuffer.allocate((int) Math.min(end, 64));
+        channel.read(header, 0);
+        String line = new String(header.array(), 0, header.position(), StandardCharsets.UTF_8);
+        try {
+            headerVertices = Integer.parseInt(line.trim());
+        } catch (NumberFormatException e) {
+            System.out.println(ERR_MESSAGE);
+            throw new IOException(ERR_MESSAGE);
+        }
+        return end;
+    }
+
+    // Splits [start, size) into chunks of about CHUNK_BYTES that each end just after a newline
+    private long[] chunkBoundaries(FileChannel channel, long start, long size) throws IOException {
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        long position = start;
+        while (position < size) {
+            position = (size - position <= CHUNK_BYTES) ? size : nextLineStart(channel, position + CHUNK_BYTES, size);
+            boundaries.add(position);
+        }
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    // Returns the offset just past the first newline at or after 'position' (or size if there is none)
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Maps and parses every chunk, in parallel if there is more than one
+    private Chunk[] parseChunks(FileChannel channel, long[] boundaries) throws IOException {
+        Chunk[] chunks = new Chunk[boundaries.length - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(channel.map(FileChannel.MapMode.READ_ONLY,
+                    boundaries[i], boundaries[i + 1] - boundaries[i]));
+        }
+        if (chunks.length == 1) {
+            chunks[0].call();
+            return chunks;
+        }
+        try {
+            for (Future<Chunk> future : ForkJoinPool.commonPool().invokeAll(Arrays.asList(chunks))) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the graph file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return chunks;
+    }
+
+    // Assigns global ids to each chunk's vertices in file order, then rewrites the
+    // chunks' edges with the global ids into one edge list
+    private void merge(Chunk[] chunks) {
+        vertexIds = new HashMap<>((int) Math.ceil(1.5 * headerVertices));
+        vertexNames = new String[Math.max(16, headerVertices)];
+        int totalEdges = 0;
+        for (Chunk chunk : chunks) {
+            int[] globalIds = new int[chunk.numVertices];
+            for (int local = 0; local < chunk.numVertices; local++) {
+                globalIds[local] = internVertex(chunk.names[local]);
+            }
+            chunk.names = null;
+            chunk.globalIds = globalIds;
+            totalEdges += chunk.numEdges;
+        }
+        vertexNames = Arrays.copyOf(vertexNames, numVertices);
+
+        edgeFrom = new int[totalEdges];
+        edgeTo = new int[totalEdges];
+        for (Chunk chunk : chunks) {
+            int[] globalIds = chunk.globalIds;
+            for (int i = 0; i < chunk.numEdges; i++) {
+                edgeFrom[numEdges] = globalIds[chunk.from[i]];
+                edgeTo[numEdges] = globalIds[chunk.to[i]];
+                numEdges++;
+            }
+        }
+    }
+
+    // Returns the id of the given vertex name, assigning the next free id if
+    // the vertex hasn't been seen before
+    private int internVertex(String name) {
+        Integer id = vertexIds.get(name);
+        if (id == null) {
+            id = numVertices++;
+            if (id == vertexNames.length) {
+                vertexNames = Arrays.copyOf(vertexNames, 2 * id);
+            }
+            vertexNames[id] = name;
+            vertexIds.put(name, id);
+        }
+        return id;
+    }
+
+    // One newline-aligned piece of the file. Parsing it fills in the chunk-local vertex
+    // dictionary and the edges between chunk-local ids.
+    private static class Chunk implements Callable<Chunk> {
+        private MappedByteBuffer bytes;
+
+        // Chunk-local vertex names by id, and an open-addressing hash table from a
+        // vertex's bytes to its id + 1 (0 marks an empty slot)
+        String[] names = new String[64];
+        private int[] nameStart = new int[64];
+        private int[] nameLength = new int[64];
+        private int[] nameHash = new int[64];
+        private int[] table = new int[128];
+        int numVertices = 0;
+
+        int[] from;
+        int[] to;
+        int numEdges = 0;
+
+        // Chunk-local id -> global id, filled in while merging
+        int[] globalIds;
+
+        Chunk(MappedByteBuffer bytes) {
+            this.bytes = bytes;
+            int guess = Math.max(16, bytes.limit() / 32);
+            from = new int[guess];
+            to = new int[guess];
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            int limit = bytes.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && bytes.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                parseLine(lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+            bytes = null;
+            nameStart = null;
+            nameLength = null;
+            nameHash = null;
+            table = null;
+            return this;
+        }
+
+        // Parses one "from to" line: the line is trimmed, 'from' runs up to the first
+        // space and 'to' is the trimmed rest of the line
+        private void parseLine(int start, int end) throws IOException {
+            while (start < end && (bytes.get(start) & 0xff) <= ' ') start++;
+            while (end > start && (bytes.get(end - 1) & 0xff) <= ' ') end--;
+            if (start == end) return;
+
+            int split = start;
+            while (split < end && bytes.get(split) != ' ') {
+                split++;
+            }
+            if (split == end) {
+                System.out.println(ERR_MESSAGE);
+                throw new IOException(ERR_MESSAGE);
+            }
+            int toStart = split;
+            while ((bytes.get(toStart) & 0xff) <= ' ') {
+                toStart++;
+            }
+
+            if (numEdges == from.length) {
+                from = Arrays.copyOf(from, 2 * numEdges);
+                to = Arrays.copyOf(to, 2 * numEdges);
+            }
+            from[numEdges] = intern(start, split);
+            to[numEdges] = intern(toStart, end);
+            numEdges++;
+        }
+
+        // Returns the chunk-local id of the vertex spelled by bytes [start, end)
+        private int intern(int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes.get(i);
+            }
+            int mask = table.length - 1;
+            int slot = mix(hash) & mask;
+            while (table[slot] != 0) {
+                int id = table[slot] - 1;
+                if (nameHash[id] == hash && sameBytes(id, start, end)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = numVertices++;
+            if (id == names.length) {
+                names = Arrays.copyOf(names, 2 * id);
+                nameStart = Arrays.copyOf(nameStart, 2 * id);
+                nameLength = Arrays.copyOf(nameLength, 2 * id);
+                nameHash = Arrays.copyOf(nameHash, 2 * id);
+            }
+            byte[] name = new byte[end - start];
+            bytes.get(start, name);
+            names[id] = new String(name, StandardCharsets.UTF_8);
+            nameStart[id] = start;
+            nameLength[id] = end - start;
+            nameHash[id] = hash;
+            table[slot] = id + 1;
+            if (2 * numVertices > table.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private boolean sameBytes(int id, int start, int end) {
+            if (nameLength[id] != end - start) {
+                return false;
+            }
+            for (int i = 0, other = nameStart[id]; i < end - start; i++) {
+                if (bytes.get(start + i) != bytes.get(other + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Doubles the hash table, keeping it at most half full
+        private void rehash() {
+            table = new int[2 * table.length];
+            int mask = table.length - 1;
+            for (int id = 0; id < numVertices; id++) {
+                int slot = mix(nameHash[id]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id + 1;
+            }
+        }
+
+        // Spreads the bits of a String-style hash so that linear probing works well
+        private static int mix(int hash) {
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads pages from a local mirror of the wiki, a directory laid out like the site: the page at
+ * /wiki/AA.html is the file wiki/AA.html under the directory. Only the path of a url is used, so
+ * the crawler's base url can be anything, including "".
+ */
+public class FilePageFetcher implements PageFetcher {
+    private final Path root;
+
+    /**
+     * @param root The directory of the mirror, for example "test/server"
+     */
+    public FilePageFetcher(String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        String path;
+        try {
+            path = URI.create(url).getPath();
+        } catch (IllegalArgumentException e) {
+            throw (MalformedURLException) new MalformedURLException("Malformed url: " + url).initCause(e);
+        }
+        Path file = root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            throw new FileNotFoundException("No page for " + url + " in " + root);
+        }
+        return Files.newInputStream(file);
+    }
+}
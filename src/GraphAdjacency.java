@@ -0,0 +1,31 @@
+/**
+ * Read access to a graph's compressed-sparse-row adjacency, forwards and reversed, by vertex id.
+ * GraphProcessor keeps its adjacency in int arrays on the heap, and OffHeapGraph in
+ * OffHeapBuffers; both expose it through this interface so they share the searches in
+ * GraphSearches. Edge positions are longs, since an OffHeapGraph can have more than 2^31 edges.
+ */
+interface GraphAdjacency {
+    /**
+     * @return The number of vertices. Vertex ids run from 0 to numVertices() - 1.
+     */
+    int numVertices();
+
+    /**
+     * The children of vertex 'v' are child(childStart(v)) ... child(childEnd(v) - 1)
+     */
+    long childStart(int v);
+
+    long childEnd(int v);
+
+    int child(long edge);
+
+    /**
+     * The parents of vertex 'v', the vertices with an edge to it, are parent(parentStart(v)) ...
+     * parent(parentEnd(v) - 1)
+     */
+    long parentStart(int v);
+
+    long parentEnd(int v);
+
+    int parent(long edge);
+}
@@ -0,0 +1,176 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Builds a GraphProcessor from edges that arrive a few at a time, for example from a network
+ * stream or a crawl in progress, instead of from an edge list file. No vertex count is needed up
+ * front.
+ * <p>
+ * Vertices are interned as the edges arrive, and the edges are kept as two primitive arrays
+ * of vertex ids that grow geometrically, so the builder holds 8 to 16 bytes per edge, depending
+ * on the arrays' spare capacity, plus one String per distinct vertex. While the arrays double,
+ * the old and new copies briefly take up to 20 bytes per edge.
+ * <p>
+ * build() sorts the edges into the graph's adjacency while it still holds the edge arrays, so
+ * it peaks at the edge arrays plus 4 bytes per edge for the adjacency, and another 4 bytes per
+ * edge if duplicate edges had to be dropped: up to 24 bytes per edge in all. The edge arrays are
+ * released before the reverse adjacency and the SCC's are built, which take 4 bytes per edge
+ * and a few ints per vertex more.
+ */
+public class GraphBuilder {
+    private static final String ERR_MESSAGE = "Incorrect input file format!";
+
+    // Vertex-interning dictionary: vertex name -> id, and id -> vertex name
+    HashMap<String, Integer> vertexIds = new HashMap<>();
+    String[] vertexNames = new String[16];
+    int numVertices = 0;
+
+    // The edges, in the order they were added: edge 'i' goes from edgeFrom[i] to edgeTo[i]
+    int[] edgeFrom = new int[16];
+    int[] edgeTo = new int[16];
+    int numEdges = 0;
+
+    // Set once build() has taken the edges
+    private boolean built = false;
+
+    /**
+     * Adds the edge from u to v. Vertices are numbered in the order they are first added, and
+     * duplicate edges are dropped by build().
+     *
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     */
+    public void addEdge(String u, String v) {
+        if (built) {
+            throw new IllegalStateException("The graph has already been built");
+        }
+        int from = internVertex(u);
+        int to = internVertex(v);
+        if (numEdges == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, 2 * numEdges);
+            edgeTo = Arrays.copyOf(edgeTo, 2 * numEdges);
+        }
+        edgeFrom[numEdges] = from;
+        edgeTo[numEdges] = to;
+        numEdges++;
+    }
+
+    /**
+     * Adds every edge the iterator returns, as addEdge would
+     *
+     * @param edges Each element is an array {u, v} for the edge from u to v
+     */
+    public void addEdges(Iterator<String[]> edges) {
+        while (edges.hasNext()) {
+            String[] edge = edges.next();
+            addEdge(edge[0], edge[1]);
+        }
+    }
+
+    /**
+     * Adds every edge of the stream, in its encounter order, as addEdge would
+     *
+     * @param edges Each element is an array {u, v} for the edge from u to v
+     */
+    public void addEdges(Stream<String[]> edges) {
+        addEdges(edges.iterator());
+    }
+
+    /**
+     * Reads edges from a stream in the edge list format: one "from to" edge per line, optionally
+     * after a line with the number of vertices (which is ignored). The stream is read a buffer
+     * at a time and isn't closed, so more edges can follow from other sources.
+     *
+     * @param in UTF-8 edge list lines
+     */
+    public void addEdges(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        boolean firstLine = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int split = line.indexOf(' ');
+            if (split < 0) {
+                if (firstLine && isNumber(line)) {
+                    // The vertex count header
+                    firstLine = false;
+                    continue;
+                }
+                System.out.println(ERR_MESSAGE);
+                throw new IOException(ERR_MESSAGE);
+            }
+            firstLine = false;
+            addEdge(line.substring(0, split), line.substring(split + 1).trim());
+        }
+    }
+
+    /**
+     * @return The number of edges added so far, including duplicates
+     */
+    public int numEdges() {
+        return numEdges;
+    }
+
+    /**
+     * Builds the graph and discovers its SCC's. The builder can't be used afterwards.
+     */
+    public GraphProcessor build() {
+        return build(false);
+    }
+
+    /**
+     * @param parallelSCC If 'true', the SCC's are discovered in parallel, as with
+     *                    GraphProcessor(graphData, true)
+     * @see #build()
+     */
+    public GraphProcessor build(boolean parallelSCC) {
+        if (built) {
+            throw new IllegalStateException("The graph has already been built");
+        }
+        built = true;
+        vertexNames = Arrays.copyOf(vertexNames, numVertices);
+        return new GraphProcessor(this, parallelSCC);
+    }
+
+    // Drops the builder's references to the graph, once GraphProcessor has taken them
+    void release() {
+        vertexIds = null;
+        vertexNames = null;
+        edgeFrom = null;
+        edgeTo = null;
+    }
+
+    // Returns the id of the given vertex name, assigning the next free id if
+    // the vertex hasn't been seen before
+    private int internVertex(String name) {
+        Integer id = vertexIds.get(name);
+        if (id == null) {
+            id = numVertices++;
+            if (id == vertexNames.length) {
+                vertexNames = Arrays.copyOf(vertexNames, 2 * id);
+            }
+            vertexNames[id] = name;
+            vertexIds.put(name, id);
+        }
+        return id;
+    }
+
+    private static boolean isNumber(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The GraphGenerator writes synthetic web graphs in the edge list format read by GraphProcessor:
+ * the number of vertices on the first line, then one "from to" edge per line. Graphs are
+ * generated from a seed, so the same settings always write the same file, and edges are
+ * streamed to the file as they are generated, so memory use doesn't grow with the graph.
+ * <p>
+ * Two models are supported:
+ * <p>
+ * - R-MAT: each edge picks its endpoints by recursively choosing one quadrant of the adjacency
+ * matrix, giving a skewed (power-law-like) degree distribution
+ * - Preferential attachment: every vertex links to earlier vertices, each chosen either
+ * uniformly or in proportion to its degree. Choosing in proportion to degree is done by copying
+ * an endpoint of a random earlier edge, and every edge can be regenerated from its index, so no
+ * edges need to be remembered.
+ * <p>
+ * By default each edge gets a random direction, and the SCC's are whatever the model gives. With
+ * setComponentStructure, the graph instead has one giant SCC and many small SCC's of a given size.
+ * The generator may write an edge more than once; GraphProcessor ignores duplicate edges.
+ */
+public class GraphGenerator {
+    /**
+     * The random graph models the generator supports
+     */
+    public enum Model {
+        RMAT, PREFERENTIAL_ATTACHMENT
+    }
+
+    // R-MAT quadrant probabilities (the remaining 0.05 is the bottom-right quadrant)
+    private static final double RMAT_A = 0.57;
+    private static final double RMAT_B = 0.19;
+    private static final double RMAT_C = 0.19;
+
+    // In preferential attachment, the chance a link goes to a uniformly chosen earlier vertex
+    // instead of one chosen in proportion to its degree
+    private static final double UNIFORM_LINK = 0.2;
+
+    private Model model;
+    private int numVertices;
+    private long numEdges;
+    private long seed;
+
+    // The vertices 0 ... giantSize - 1 form the giant component; the rest are split into
+    // components of componentSize consecutive vertices. Zero if there is no structure.
+    private int giantSize = 0;
+    private int componentSize = 0;
+
+    // Vertex names are this prefix followed by the vertex number
+    private byte[] prefix = "/wiki/Page_".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * @param model       The random graph model
+     * @param numVertices The number of vertices
+     * @param numEdges    The number of edges the model generates, not counting the edges added
+     *                    by setComponentStructure. With preferential attachment, every vertex
+     *                    gets numEdges / numVertices links (at least 1).
+     * @param seed        The seed of the random numbers
+     */
+    public GraphGenerator(Model model, int numVertices, long numEdges, long seed) {
+        if (numVertices < 1 || numEdges < 0) {
+            throw new IllegalArgumentException("A graph needs at least one vertex and a non-negative number of edges");
+        }
+        this.model = model;
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.seed = seed;
+    }
+
+    /**
+     * Gives the graph a fixed SCC structure: the first giantFraction of the vertices form one
+     * giant component, and the rest are grouped into components of componentSize vertices (the
+     * last one may be smaller). Each component is closed by a cycle through its vertices, and
+     * edges between two components always point from the later component to the earlier one,
+     * so no other cycles form.
+     *
+     * @param giantFraction The fraction of the vertices in the giant component, from 0 to 1
+     * @param componentSize The size of the other components; 1 makes them all single vertices
+     */
+    public void setComponentStructure(double giantFraction, int componentSize) {
+        if (giantFraction < 0 || giantFraction > 1 || componentSize < 1) {
+            throw new IllegalArgumentException("Invalid component structure");
+        }
+        this.giantSize = (int) Math.round(giantFraction * numVertices);
+        this.componentSize = componentSize;
+    }
+
+    /**
+     * @param prefix The start of every vertex name, followed by the vertex number ("/wiki/Page_" by default)
+     */
+    public void setVertexPrefix(String prefix) {
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the graph to the given file
+     */
+    public void write(String fileName) throws IOException {
+        try (EdgeWriter out = new EdgeWriter(new FileOutputStream(fileName))) {
+            out.writeNumber(numVertices);
+            out.newLine();
+            if (componentSize > 0) {
+                writeComponentCycles(out);
+            }
+            if (model == Model.RMAT) {
+                writeRMAT(out);
+            } else {
+                writePreferentialAttachment(out);
+            }
+        }
+    }
+
+    // Closes the giant component and every small component with a cycle through its vertices
+    private void writeComponentCycles(EdgeWriter out) throws IOException {
+        writeCycle(out, 0, giantSize);
+        for (int start = giantSize; start < numVertices; start += componentSize) {
+            writeCycle(out, start, Math.min(start + componentSize, numVertices));
+        }
+    }
+
+    private void writeCycle(EdgeWriter out, int from, int to) throws IOException {
+        if (to - from < 2) {
+            return;
+        }
+        for (int v = from; v < to; v++) {
+            out.writeEdge(v, (v + 1 < to) ? v + 1 : from);
+        }
+    }
+
+    private void writeRMAT(EdgeWriter out) throws IOException {
+        int scale = 32 - Integer.numberOfLeadingZeros(numVertices - 1);
+        long state = seed;
+        for (long e = 0; e < numEdges; ) {
+            int u = 0, v = 0;
+            for (int bit = scale - 1; bit >= 0; bit--) {
+                state += GOLDEN_GAMMA;
+                double r = toDouble(mix(state));
+                if (r >= RMAT_A) {
+                    if (r < RMAT_A + RMAT_B) {
+                        v |= 1 << bit;
+                    } else if (r < RMAT_A + RMAT_B + RMAT_C) {
+                        u |= 1 << bit;
+                    } else {
+                        u |= 1 << bit;
+                        v |= 1 << bit;
+                    }
+                }
+            }
+            if (u >= numVertices || v >= numVertices) {
+                // Outside the graph when numVertices isn't a power of two: try again
+                continue;
+            }
+            state += GOLDEN_GAMMA;
+            writeOriented(out, u, v, mix(state));
+            e++;
+        }
+    }
+
+    private void writePreferentialAttachment(EdgeWriter out) throws IOException {
+        long linksPerVertex = Math.max(1, numEdges / numVertices);
+        // Vertex 0 has nothing to link to, so the links start with vertex 1's
+        for (long e = linksPerVertex; e < numVertices * linksPerVertex; e++) {
+            writeOriented(out, (int) (e / linksPerVertex), linkTarget(e, linksPerVertex), mix(seed ^ mix(e)));
+        }
+    }
+
+    // Returns the earlier vertex that link 'e' (of vertex e / linksPerVertex) goes to. The
+    // link either goes to a uniformly chosen earlier vertex, or copies an endpoint of a random
+    // earlier link, which picks vertices in proportion to their degree. Copying the target of
+    // an earlier link means regenerating that link, which takes two tries on average.
+    private int linkTarget(long e, long linksPerVertex) {
+        while (true) {
+            long source = e / linksPerVertex;
+            long random = mix(seed + e * GOLDEN_GAMMA);
+            // The links of the vertices before 'source', so a link never copies itself
+            long earlierLinks = (source - 1) * linksPerVertex;
+            if (earlierLinks == 0 || toDouble(random) < UNIFORM_LINK) {
+                return (int) Long.remainderUnsigned(mix(random), source);
+            }
+            long copied = linksPerVertex + Long.remainderUnsigned(mix(random + 1), earlierLinks);
+            if ((mix(random + 2) & 1) == 0) {
+                return (int) (copied / linksPerVertex);
+            }
+            e = copied;
+        }
+    }
+
+    // Writes the edge between u and v: in a random direction, unless they are in different
+    // components of the component structure, in which case it points to the earlier component
+    private void writeOriented(EdgeWriter out, int u, int v, long random) throws IOException {
+        if (u == v) {
+            return;
+        }
+        int uComponent = componentIndex(u);
+        int vComponent = componentIndex(v);
+        if (uComponent != vComponent ? uComponent < vComponent : (random & 1) == 0) {
+            int swap = u;
+            u = v;
+            v = swap;
+        }
+        out.writeEdge(u, v);
+    }
+
+    // The index of the component a vertex is in, counting the giant component as 0; always 0
+    // without a component structure
+    private int componentIndex(int v) {
+        if (componentSize == 0 || v < giantSize) {
+            return 0;
+        }
+        return 1 + (v - giantSize) / componentSize;
+    }
+
+    // SplitMix64: the increment between states, and the function from a state to its random number
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // A random number in [0, 1) from the top 53 bits
+    private static double toDouble(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+    // Writes edge lines straight into a byte buffer, without creating a String per line
+    private class EdgeWriter implements AutoCloseable {
+        private OutputStream out;
+        private byte[] buffer = new byte[1 << 16];
+        private int size = 0;
+        private byte[] digits = new byte[20];
+
+        EdgeWriter(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+        }
+
+        void writeEdge(int from, int to) throws IOException {
+            ensure(2 * (prefix.length + 11) + 2);
+            writeVertex(from);
+            buffer[size++] = ' ';
+            writeVertex(to);
+            buffer[size++] = '\n';
+        }
+
+        void newLine() throws IOException {
+            ensure(1);
+            buffer[size++] = '\n';
+        }
+
+        void writeNumber(long value) throws IOException {
+            ensure(20);
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (count > 0) {
+                buffer[size++] = digits[--count];
+            }
+        }
+
+        private void writeVertex(int v) throws IOException {
+            System.arraycopy(prefix, 0, buffer, size, prefix.length);
+            size += prefix.length;
+            writeNumber(v);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.length - size < bytes) {
+                out.write(buffer, 0, size);
+                size = 0;
+            }
+            if (buffer.length < bytes) {
+                buffer = new byte[bytes];
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write(buffer, 0, size);
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a generated graph to a file.
+     * <p>
+     * Usage: GraphGenerator rmat|pa VERTICES EDGES SEED FILE [GIANT_FRACTION COMPONENT_SIZE]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5 && args.length != 7) {
+            System.out.println("Usage: GraphGenerator rmat|pa VERTICES EDGES SEED FILE [GIANT_FRACTION COMPONENT_SIZE]");
+            return;
+        }
+        Model model = args[0].equalsIgnoreCase("rmat") ? Model.RMAT : Model.PREFERENTIAL_ATTACHMENT;
+        GraphGenerator generator = new GraphGenerator(model, Integer.parseInt(args[1]),
+                Long.parseLong(args[2]), Long.parseLong(args[3]));
+        if (args.length == 7) {
+            generator.setComponentStructure(Double.parseDouble(args[5]), Integer.parseInt(args[6]));
+        }
+        generator.write(args[4]);
+    }
+}
@@ -0,0 +1,254 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics for one GraphProcessor:
+ * <p>
+ * - How long each phase of building the graph and its indexes took (always recorded, since a
+ * phase only costs two clock reads)
+ * - For every query method, how many times it was called and a histogram of its latency
+ * - For every query method that searches the graph, how many vertices and edges it visited
+ * - An estimate of how much heap the graph, its indexes and its caches use
+ * <p>
+ * Query metrics are only recorded while the metrics are enabled (see setEnabled). While they are
+ * disabled, a query pays for one read of a volatile field. The metrics can be pulled with
+ * snapshot(), or read over JMX once registered with register().
+ */
+public class GraphMetrics implements GraphMetricsMXBean {
+    /**
+     * The query methods of GraphProcessor that have metrics
+     */
+    public enum Query {
+        OUT_DEGREE("outDegree"),
+        IN_DEGREE("inDegree"),
+        TOP_DEGREE("topDegree"),
+        SAME_COMPONENT("sameComponent"),
+        COMPONENT_VERTICES("componentVertices"),
+        REACHABLE("reachable"),
+        BFS_PATH("bfsPath"),
+        BFS_PATHS("bfsPaths"),
+        DISTANCES_FROM("distancesFrom"),
+        MULTI_SOURCE("multiSourceBfs"),
+        PAGE_RANK("pageRank"),
+        EDGE_UPDATE("edgeUpdate");
+
+        final String label;
+
+        Query(String label) {
+            this.label = label;
+        }
+    }
+
+    // Latency histograms have 2^SUB_BUCKET_BITS buckets per power of two nanoseconds, so a
+    // percentile is off by at most 1 / 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private volatile boolean enabled = Boolean.getBoolean("GraphProcessor.metrics");
+
+    // Duration of the last run of each phase, in the order the phases first ran
+    private final LinkedHashMap<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    // Per query: number of calls, latency histogram, slowest call, and vertices and edges visited
+    private final LongAdder[] calls = new LongAdder[Query.values().length];
+    private final AtomicLongArray[] latency = new AtomicLongArray[Query.values().length];
+    private final AtomicLongArray maxNanos = new AtomicLongArray(Query.values().length);
+    private final LongAdder[] vertices = new LongAdder[Query.values().length];
+    private final LongAdder[] edges = new LongAdder[Query.values().length];
+
+    // Estimates the heap used by each part of the graph, in bytes
+    private final Supplier<Map<String, Long>> footprint;
+
+    /**
+     * @param footprint Estimates the heap used by each part of the graph, in bytes
+     */
+    GraphMetrics(Supplier<Map<String, Long>> footprint) {
+        this.footprint = footprint;
+        for (int q = 0; q < calls.length; q++) {
+            calls[q] = new LongAdder();
+            latency[q] = new AtomicLongArray(NUM_BUCKETS);
+            vertices[q] = new LongAdder();
+            edges[q] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return 'true' if query metrics are being recorded. They are off unless the system
+     * property GraphProcessor.metrics is "true".
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording query metrics. Metrics already recorded are kept.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Clears every query metric. Phase timings are kept.
+     */
+    @Override
+    public void reset() {
+        for (int q = 0; q < calls.length; q++) {
+            calls[q].reset();
+            vertices[q].reset();
+            edges[q].reset();
+            maxNanos.set(q, 0);
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                latency[q].set(b, 0);
+            }
+        }
+    }
+
+    /**
+     * Returns every metric, under keys such as "phase.sccDFS.nanos", "query.bfsPath.count",
+     * "query.bfsPath.p99.nanos", "query.bfsPath.vertices" (the total visited by every call) and
+     * "footprint.graph.bytes". Latency percentiles are upper bounds of histogram buckets that
+     * are 1/8th of a power of two wide.
+     */
+    @Override
+    public Map<String, Long> getSnapshot() {
+        return snapshot();
+    }
+
+    /**
+     * @see #getSnapshot()
+     */
+    public LinkedHashMap<String, Long> snapshot() {
+        LinkedHashMap<String, Long> snapshot = new LinkedHashMap<>();
+        synchronized (phaseNanos) {
+            for (Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+                snapshot.put("phase." + phase.getKey() + ".nanos", phase.getValue());
+            }
+        }
+        for (Query query : Query.values()) {
+            int q = query.ordinal();
+            long count = calls[q].sum();
+            if (count == 0) {
+                continue;
+            }
+            String prefix = "query." + query.label;
+            snapshot.put(prefix + ".count", count);
+            long[] histogram = new long[NUM_BUCKETS];
+            long total = 0;
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                histogram[b] = latency[q].get(b);
+                total += histogram[b];
+            }
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                snapshot.put(prefix + "." + PERCENTILE_NAMES[p] + ".nanos", percentile(histogram, total, PERCENTILES[p]));
+            }
+            snapshot.put(prefix + ".max.nanos", maxNanos.get(q));
+            if (vertices[q].sum() > 0 || edges[q].sum() > 0) {
+                snapshot.put(prefix + ".vertices", vertices[q].sum());
+                snapshot.put(prefix + ".edges", edges[q].sum());
+            }
+        }
+        for (Map.Entry<String, Long> part : footprint.get().entrySet()) {
+            snapshot.put("footprint." + part.getKey() + ".bytes", part.getValue());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under the name
+     * "GraphProcessor:type=GraphMetrics,name=[name]"
+     *
+     * @return The name the metrics were registered under
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("GraphProcessor:type=GraphMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregisters metrics registered with register(name)
+     */
+    public void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                new ObjectName("GraphProcessor:type=GraphMetrics,name=" + ObjectName.quote(name)));
+    }
+
+    // Records how long a phase took, given the System.nanoTime() it started at
+    void phase(String name, long start) {
+        long nanos = System.nanoTime() - start;
+        synchronized (phaseNanos) {
+            phaseNanos.put(name, nanos);
+        }
+    }
+
+    // Returns the time a query started, or 0 if metrics are off. Pass it to end().
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Records a query that started at 'start' (from start()). Does nothing if metrics were off
+    // when it started.
+    void end(Query query, long start) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = Math.max(0, System.nanoTime() - start);
+        int q = query.ordinal();
+        calls[q].increment();
+        latency[q].incrementAndGet(bucket(nanos));
+        maxNanos.accumulateAndGet(q, nanos, Math::max);
+    }
+
+    // Adds the vertices and edges a search visited to a query's totals
+    void visited(Query query, long vertexCount, long edgeCount) {
+        if (enabled) {
+            vertices[query.ordinal()].add(vertexCount);
+            edges[query.ordinal()].add(edgeCount);
+        }
+    }
+
+    // The histogram bucket for a latency: values below SUB_BUCKETS have their own bucket, and
+    // larger values are bucketed by their highest bit and the SUB_BUCKET_BITS bits below it
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The smallest latency in a bucket
+    private static long bucketStart(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long percentile(long[] histogram, long total, double fraction) {
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= rank && histogram[b] > 0) {
+                return (b + 1 < histogram.length) ? bucketStart(b + 1) - 1 : Long.MAX_VALUE;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+import java.util.Map;
+
+/**
+ * The JMX view of a GraphProcessor's metrics (see GraphMetrics)
+ */
+public interface GraphMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+
+    Map<String, Long> getSnapshot();
+}
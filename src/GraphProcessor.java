@@ -1,7 +1,13 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * The GraphProcessor reads a graph stored in a file, using a Strongly Connected Components (SCC)
@@ -13,29 +19,247 @@ import java.util.*;
  * - Size of the largest component
  * - Given a vertex v, find all vertices that belong to the same SCC as v
  * - Find shortest (BFS) path from a vertex v to u.
+ * - Whether there is any path from a vertex u to v, using the condensation of the graph
+ * - PageRank and personalized PageRank of every vertex
+ * <p>
+ * Timings of each phase of loading, and (once enabled) latencies and counters for the queries,
+ * are available from metrics().
+ * <p>
+ * Once frozen (see freeze), the graph can't change and any number of threads can query it at
+ * once. GraphStore publishes frozen graphs and swaps in new ones as they are loaded.
+ * OffHeapGraph answers the same queries for graphs stored outside the heap.
  *
  * @author nkarasch
  */
 @SuppressWarnings("WeakerAccess")
 public class GraphProcessor {
-    private HashMap<String, HashSet<String>> graph;
-    private SCCHelper sccHelper;
+    // Vertex-interning dictionary: vertex name -> id, and id -> vertex name
+    private HashMap<String, Integer> vertexIds;
+    private String[] vertexNames;
+    private int numVertices;
+
+    // Compressed-sparse-row adjacency. The children of vertex 'i' are
+    // targets[offsets[i]] ... targets[offsets[i + 1] - 1]
+    private int[] offsets;
+    private int[] targets;
+
+    // The same adjacency with every edge reversed: the parents of vertex 'i' are
+    // reverseTargets[reverseOffsets[i]] ... reverseTargets[reverseOffsets[i + 1] - 1]
+    private int[] reverseOffsets;
+    private int[] reverseTargets;
+
+    // Both adjacencies, for GraphSearches
+    private final GraphAdjacency adjacency = new HeapAdjacency();
+
+    // Component index, built once after SCC discovery. componentOf[v] is the id of
+    // the SCC containing vertex 'v', and the members of component 'c' are
+    // componentMembers[componentOffsets[c]] ... componentMembers[componentOffsets[c + 1] - 1]
+    private int[] componentOf;
+    private int[] componentOffsets;
+    private int[] componentMembers;
+    private int numComponents;
+    private int largestComponentSize;
+
+    // The edge list file the graph was read from (null for a graph from a GraphBuilder)
+    private String graphDataFile;
+
+    // Phase timings, query metrics and heap estimates, see metrics()
+    private final GraphMetrics metrics = new GraphMetrics(this::footprint);
+
+    // Set by freeze(), after which the edges can't change
+    private volatile boolean frozen = false;
 
     /**
      * @param graphData The absolute path of a file that stores a directed graph
      */
     public GraphProcessor(String graphData) throws IOException {
-//        System.out.print("Initializing graph from file ... ");
-//        long start = System.nanoTime();
+        this(graphData, false);
+    }
+
+    /**
+     * @param graphData   The absolute path of a file that stores a directed graph
+     * @param parallelSCC If 'true', the SCC's are discovered in parallel on the common ForkJoinPool;
+     *                    the resulting components are the same as with the sequential algorithm
+     */
+    public GraphProcessor(String graphData, boolean parallelSCC) throws IOException {
+        initFromGraphData(graphData, parallelSCC);
+    }
+
+    // Takes the vertices and edges of a GraphBuilder, see GraphBuilder.build
+    GraphProcessor(GraphBuilder builder, boolean parallelSCC) {
+        long start = System.nanoTime();
+        vertexIds = builder.vertexIds;
+        vertexNames = builder.vertexNames;
+        numVertices = builder.numVertices;
+        buildAdjacency(builder.edgeFrom, builder.edgeTo, builder.numEdges);
+        // Nothing else holds the edge arrays, so they can be collected before the reverse
+        // graph and the SCC's are built
+        builder.release();
+        metrics.phase("build", start);
+        initComponents(parallelSCC);
+    }
+
+    /**
+     * Loads the graph from a binary snapshot (see saveSnapshot) instead of parsing graphData,
+     * so that no parsing or SCC discovery is needed. If the snapshot is missing, corrupt, from
+     * a different format version, or was built from another file or an older graphData, the
+     * graph is read from graphData as usual and a new snapshot is saved; if it can't be saved,
+     * the graph is still loaded. If graphData no longer exists, the snapshot is used as it is.
+     *
+     * @param graphData    The absolute path of a file that stores a directed graph
+     * @param snapshotFile The path of a snapshot of the graph in graphData
+     */
+    public GraphProcessor(String graphData, String snapshotFile) throws IOException {
+        GraphSnapshot snapshot = null;
+        if (new File(snapshotFile).exists()) {
+            long start = System.nanoTime();
+            try {
+                snapshot = GraphSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                System.out.println("Ignoring unreadable graph snapshot: " + e.getMessage());
+            }
+            metrics.phase("snapshotRead", start);
+        }
+        if (snapshot != null && snapshot.isFreshFor(graphData)) {
+            if (!new File(graphData).exists()) {
+                System.out.println(graphData + " is missing, so its graph snapshot can't be checked; using "
+                        + snapshotFile);
+            }
+            graphDataFile = graphData;
+            long start = System.nanoTime();
+            initFromSnapshot(snapshot);
+            metrics.phase("snapshotInit", start);
+        } else {
+            initFromGraphData(graphData, false);
+            try {
+                saveSnapshot(snapshotFile);
+            } catch (IOException e) {
+                System.out.println("Couldn't save the graph snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Saves the graph and its components to a binary snapshot file, which can be loaded with
+     * GraphProcessor(graphData, snapshotFile). The snapshot records the absolute path, length and
+     * modification time of the file the graph was read from, so that it isn't used for another
+     * file or once that file changes. A snapshot of a graph changed by addEdge(s) or removeEdge(s)
+     * is only used if that file is gone.
+     *
+     * @param snapshotFile The path to save the snapshot to
+     */
+    public void saveSnapshot(String snapshotFile) throws IOException {
+        ensureComponentIndex();
+        GraphSnapshot snapshot = new GraphSnapshot();
+        if (graphDataFile != null) {
+            snapshot.stampSource(graphDataFile);
+        }
+        if (modified || graphDataFile == null) {
+            // The graph no longer matches the file it was read from, or wasn't read from one
+            snapshot.sourceLength = -1;
+        }
+        snapshot.vertexNames = vertexNames;
+        snapshot.offsets = offsets;
+        snapshot.targets = targets;
+        snapshot.reverseOffsets = reverseOffsets;
+        snapshot.reverseTargets = reverseTargets;
+        snapshot.componentOf = componentOf;
+        snapshot.componentOffsets = componentOffsets;
+        snapshot.componentMembers = componentMembers;
+        snapshot.largestComponentSize = largestComponentSize;
+        long start = System.nanoTime();
+        snapshot.write(snapshotFile);
+        metrics.phase("snapshotWrite", start);
+    }
+
+    // Reads the graph from a text edge list file and discovers its SCC's
+    private void initFromGraphData(String graphData, boolean parallelSCC) throws IOException {
+        graphDataFile = graphData;
+        long start = System.nanoTime();
         initGraphFromFile(graphData);
-//        long end = System.nanoTime();
-//        System.out.println("done. Time taken: " + (end - start) + " ns   (" + ((end - start) / 1000000000.0) + " seconds)");
+        metrics.phase("load", start);
+        initComponents(parallelSCC);
+    }
+
+    // Builds the reverse adjacency and discovers the SCC's of the graph
+    private void initComponents(boolean parallelSCC) {
+        long start = System.nanoTime();
+        initReverseGraph();
+        metrics.phase("reverseGraph", start);
+        if (parallelSCC) {
+            start = System.nanoTime();
+            ParallelSCCHelper sccHelper = new ParallelSCCHelper(ForkJoinPool.commonPool());
+            metrics.phase("parallelSCC", start);
+            initComponentIndex(sccHelper.componentOf, sccHelper.numComponents);
+        } else {
+            // SCCHelper times its two searches itself
+            SCCHelper sccHelper = new SCCHelper();
+            initComponentIndex(sccHelper.componentOf, sccHelper.numComponents);
+        }
+    }
+
+    /**
+     * Makes the graph read-only so that it can be shared between threads. The indexes that are
+     * otherwise built on first use are built now, so that afterwards no query changes any shared
+     * state: searches take their scratch space from a pool, and only the BFS Tree cache of
+     * bfsPaths takes a lock. Any number of threads can then query the graph at once, while
+     * addEdge(s) and removeEdge(s) throw IllegalStateException.
+     * <p>
+     * Without freeze(), a GraphProcessor must only be used by one thread at a time.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        ensureCondensation();
+        ensureDegreeIndex();
+        frozen = true;
+    }
+
+    /**
+     * @return 'true' once freeze() has been called
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return The metrics of this graph: how long each phase of loading took, latencies and
+     * visited vertex and edge counts for the queries, and estimates of the heap the graph uses.
+     * Query metrics are off until enabled with metrics().setEnabled(true).
+     */
+    public GraphMetrics metrics() {
+        return metrics;
+    }
 
-//        System.out.print("Discovering Strongly-Connected Components ... ");
-//        start = System.nanoTime();
-        sccHelper = new SCCHelper((int) Math.ceil(1.5 * graph.size()));
-//        end = System.nanoTime();
-//        System.out.println("done. Time taken: " + (end - start) + " ns   (" + ((end - start) / 1000000000.0) + " seconds)");
+    // Estimates the heap used by the graph and each of its indexes, in bytes. Objects are
+    // counted with a 16 byte header, and Strings as Latin-1.
+    private Map<String, Long> footprint() {
+        LinkedHashMap<String, Long> bytes = new LinkedHashMap<>();
+        bytes.put("graph", 4L * (offsets.length + targets.length + reverseOffsets.length + reverseTargets.length));
+        if (componentOf != null) {
+            bytes.put("components", 4L * (componentOf.length + componentOffsets.length + componentMembers.length));
+        }
+        long names = 16 + 4L * vertexNames.length;
+        for (String name : vertexNames) {
+            // The String and its byte array, and the HashMap entry and Integer of vertexIds
+            names += 40 + name.length() + 48;
+        }
+        bytes.put("vertexNames", names);
+        bytes.put("bfsTreeCache", bfsTreeCache.bytes);
+        long scratch = bidirectionalSearches.size() * 8 * 4L * numVertices;
+        scratch += distanceSearches.size() * (2 * 8L * ((numVertices + 63) >>> 6) + 4L * numVertices);
+        bytes.put("searchScratch", scratch);
+        if (condensation != null) {
+            bytes.put("condensation", condensation.bytes());
+        }
+        if (outDegreeIndex != null) {
+            bytes.put("degreeIndex", outDegreeIndex.bytes() + inDegreeIndex.bytes());
+        }
+        if (sccUpdater != null) {
+            bytes.put("sccUpdater", sccUpdater.bytes());
+        }
+        return bytes;
     }
 
     /**
@@ -43,8 +267,91 @@ public class GraphProcessor {
      * @return the out degree of v
      */
     public int outDegree(String v) {
-        HashSet<String> set = graph.get(v);
-        return (set == null) ? 0 : set.size();
+        long start = metrics.start();
+        Integer id = vertexIds.get(v);
+        int degree = (id == null) ? 0 : offsets[id + 1] - offsets[id];
+        metrics.end(GraphMetrics.Query.OUT_DEGREE, start);
+        return degree;
+    }
+
+    /**
+     * @param v Represents a vertex in the graph
+     * @return the in degree of v
+     */
+    public int inDegree(String v) {
+        long start = metrics.start();
+        Integer id = vertexIds.get(v);
+        int degree = (id == null) ? 0 : reverseOffsets[id + 1] - reverseOffsets[id];
+        metrics.end(GraphMetrics.Query.IN_DEGREE, start);
+        return degree;
+    }
+
+    /**
+     * @param k The number of vertices to return
+     * @return The k vertices with the highest out degree (or every vertex, if there are fewer
+     * than k), highest first. Vertices with the same out degree are in the order they first
+     * appear in the graph file.
+     */
+    public ArrayList<String> topOutDegree(int k) {
+        long start = metrics.start();
+        ensureDegreeIndex();
+        ArrayList<String> vertices = topVertices(outDegreeIndex, k);
+        metrics.end(GraphMetrics.Query.TOP_DEGREE, start);
+        return vertices;
+    }
+
+    /**
+     * @param k The number of vertices to return
+     * @return The k vertices with the highest in degree (or every vertex, if there are fewer
+     * than k), highest first. Vertices with the same in degree are in the order they first
+     * appear in the graph file.
+     */
+    public ArrayList<String> topInDegree(int k) {
+        long start = metrics.start();
+        ensureDegreeIndex();
+        ArrayList<String> vertices = topVertices(inDegreeIndex, k);
+        metrics.end(GraphMetrics.Query.TOP_DEGREE, start);
+        return vertices;
+    }
+
+    /**
+     * @return The out degree histogram: element 'd' is the number of vertices with out degree d,
+     * up to the highest out degree in the graph
+     */
+    public int[] outDegreeHistogram() {
+        ensureDegreeIndex();
+        return outDegreeIndex.histogram.clone();
+    }
+
+    /**
+     * @return The in degree histogram: element 'd' is the number of vertices with in degree d,
+     * up to the highest in degree in the graph
+     */
+    public int[] inDegreeHistogram() {
+        ensureDegreeIndex();
+        return inDegreeIndex.histogram.clone();
+    }
+
+    // The vertices sorted by out and in degree, built on first use
+    private DegreeIndex outDegreeIndex;
+    private DegreeIndex inDegreeIndex;
+
+    private void ensureDegreeIndex() {
+        if (outDegreeIndex == null) {
+            long start = System.nanoTime();
+            outDegreeIndex = new DegreeIndex(offsets);
+            inDegreeIndex = new DegreeIndex(reverseOffsets);
+            metrics.phase("degreeIndex", start);
+        }
+    }
+
+    private ArrayList<String> topVertices(DegreeIndex index, int k) {
+        int count = Math.max(0, Math.min(k, numVertices));
+        ArrayList<String> vertices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vertices.add(vertexNames[index.byDegree[i]]);
+        }
+        return vertices;
     }
 
     /**
@@ -53,12 +360,12 @@ public class GraphProcessor {
      * @return 'true' if u and v belong to the same SCC; otherwise returns 'false'
      */
     public boolean sameComponent(String u, String v) {
-        for (HashSet<String> scc : sccHelper.stronglyConnectedComponents) {
-            if (scc.contains(u) && scc.contains(v)) {
-                return true;
-            }
-        }
-        return false;
+        long start = metrics.start();
+        Integer uId = vertexIds.get(u);
+        Integer vId = vertexIds.get(v);
+        boolean same = uId != null && vId != null && componentOf[uId] == componentOf[vId];
+        metrics.end(GraphMetrics.Query.SAME_COMPONENT, start);
+        return same;
     }
 
     /**
@@ -66,246 +373,2295 @@ public class GraphProcessor {
      * @return All the vertices that belong to the same Strongly Connected Component of v (including v)
      */
     public ArrayList<String> componentVertices(String v) {
-        for (HashSet<String> scc : sccHelper.stronglyConnectedComponents) {
-            if (scc.contains(v)) {
-                return new ArrayList<>(scc);
-            }
+        long start = metrics.start();
+        Integer id = vertexIds.get(v);
+        if (id == null) {
+            metrics.end(GraphMetrics.Query.COMPONENT_VERTICES, start);
+            return new ArrayList<>();
+        }
+        ensureComponentIndex();
+        int component = componentOf[id];
+        ArrayList<String> vertices = new ArrayList<>(componentOffsets[component + 1] - componentOffsets[component]);
+        for (int i = componentOffsets[component]; i < componentOffsets[component + 1]; i++) {
+            vertices.add(vertexNames[componentMembers[i]]);
         }
-        return new ArrayList<>();
+        metrics.end(GraphMetrics.Query.COMPONENT_VERTICES, start);
+        return vertices;
     }
 
     /**
      * @return The size of the largest component
      */
     public int largestComponent() {
-        int max = 0;
-        for (HashSet<String> scc : sccHelper.stronglyConnectedComponents) {
-            max = Math.max(max, scc.size());
-        }
-        return max;
+        ensureComponentIndex();
+        return largestComponentSize;
     }
 
     /**
      * @return The number of Strongly Connected Components
      */
     public int numComponents() {
-        return sccHelper.stronglyConnectedComponents.size();
+        return numComponents;
     }
 
     /**
-     * This method returns an array list of strings that represents the BFS path from u to v.
-     * The first vertex in the path must be u and the last vertex must be v. If there is no
-     * path from u to v, then this method returns an empty list.
+     * Answers whether v can be reached from u without a search of the graph: u and v are looked
+     * up in a reachability index over the condensation (the DAG of SCC's, see condensationChildren).
+     * The index is built on first use, and decides most queries on its own; the rest are answered
+     * by a search of the condensation that the index prunes.
      *
      * @param u Represents a vertex in the graph
      * @param v Represents a vertex in the graph
-     * @return The BFS path from u to v.
+     * @return 'true' if there is a path from u to v. Every vertex can reach itself.
      */
-    public ArrayList<String> bfsPath(String u, String v) {
-        ArrayList<String> pathList = new ArrayList<>();
+    public boolean reachable(String u, String v) {
+        long start = metrics.start();
+        Integer uId = vertexIds.get(u);
+        Integer vId = vertexIds.get(v);
+        boolean reachable = false;
+        if (uId != null && vId != null) {
+            ensureCondensation();
+            reachable = condensation.reachable(componentOf[uId], componentOf[vId]);
+        }
+        metrics.end(GraphMetrics.Query.REACHABLE, start);
+        return reachable;
+    }
 
-        if (graph.get(u) == null) {
-            // The starting vertex wasn't in the graph, so there's no path
-            return pathList;
+    /**
+     * @param v Represents a vertex in the graph
+     * @return The id of the SCC containing v, from 0 to numComponents() - 1, or -1 if v isn't in the graph
+     */
+    public int componentId(String v) {
+        Integer id = vertexIds.get(v);
+        if (id == null) {
+            return -1;
         }
+        ensureComponentIndex();
+        return componentOf[id];
+    }
 
-        // If u == v (same vertex), return a list [u, v]
-        // per clarifications in discussion post "BFS Path" by Logan Heitz from 3/26/17.
-        if (u.equals(v)) {
-            pathList.add(u);
-            pathList.add(v);
-            return pathList;
+    /**
+     * The condensation of the graph is a DAG with one node per SCC, and an edge from component
+     * a to component b whenever some vertex of a has an edge to some vertex of b.
+     *
+     * @param component The id of a component (see componentId)
+     * @return The ids of the components that component has an edge to in the condensation
+     */
+    public int[] condensationChildren(int component) {
+        ensureCondensation();
+        if (component < 0 || component >= numComponents) {
+            return new int[0];
         }
+        return Arrays.copyOfRange(condensation.targets, condensation.offsets[component],
+                condensation.offsets[component + 1]);
+    }
 
-        // Create a BFS-Tree starting at 'u'
-        HashMap<String, String> bfsTree = bfsTree(u);
+    // The condensation and its reachability index, built on first use
+    private Condensation condensation;
 
-        // Start at the last vertex in the path
-        String current = bfsTree.get(v);
-        if (current == null) {
-            // There is no path from u to v, so return an empty ArrayList
-            return pathList;
+    private void ensureCondensation() {
+        ensureComponentIndex();
+        if (condensation == null) {
+            long start = System.nanoTime();
+            condensation = new Condensation(offsets, targets, componentOf, componentOffsets, componentMembers, metrics);
+            metrics.phase("condensation", start);
         }
+    }
 
-        // Add the vertices in the path, from child to parent (from v to u)
-        pathList.add(v);
-        while (current != null) {
-            pathList.add(current);
-            current = bfsTree.get(current);
-        }
+    /**
+     * Adds the edge from u to v to the graph, updating the components incrementally. Vertices
+     * that aren't in the graph yet are added. See addEdges for adding many edges at once.
+     *
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     */
+    public void addEdge(String u, String v) {
+        addEdges(Collections.singletonList(new String[]{u, v}));
+    }
 
-        // Reverse the list before returning it, so it goes from u to v
-        Collections.reverse(pathList);
-        return pathList;
+    /**
+     * Removes the edge from u to v from the graph, if it exists, updating the components
+     * incrementally. Both vertices stay in the graph. See removeEdges for removing many edges
+     * at once.
+     *
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     */
+    public void removeEdge(String u, String v) {
+        removeEdges(Collections.singletonList(new String[]{u, v}));
     }
 
-    private class SCCHelper {
-        private int finishTimeCounter = 0;
-        private HashSet<String> visited;
-        private PriorityQueue<VertexTime> finishTimes;
-        private HashMap<String, HashSet<String>> reversedGraph;
-        private HashSet<String> tempSCC;
+    /**
+     * Adds a batch of edges to the graph. Instead of recomputing every SCC, only the components
+     * that new edges close a cycle through are merged, found by searching between the two ends
+     * of the edge in a topological order of the components (Pearce-Kelly). Edges that already
+     * exist are ignored.
+     * <p>
+     * The adjacency arrays are laid out again once per batch, so adding many edges in one call
+     * is much cheaper than adding them one at a time.
+     *
+     * @param edges Each element is an array {u, v} for the edge from u to v
+     */
+    public void addEdges(List<String[]> edges) {
+        updateEdges(edges, Collections.emptyList());
+    }
+
+    /**
+     * Removes a batch of edges from the graph. Instead of recomputing every SCC, only the
+     * components that lost an edge between two of their own vertices are split again. Edges that
+     * don't exist are ignored, and every vertex stays in the graph.
+     * <p>
+     * The adjacency arrays are laid out again once per batch, so removing many edges in one call
+     * is much cheaper than removing them one at a time.
+     *
+     * @param edges Each element is an array {u, v} for the edge from u to v
+     */
+    public void removeEdges(List<String[]> edges) {
+        updateEdges(Collections.emptyList(), edges);
+    }
 
-        private class VertexTime {
-            String vertex;
-            int time;
+    // Removes and then adds the given edges, keeping the components up to date
+    private void updateEdges(List<String[]> added, List<String[]> removed) {
+        if (frozen) {
+            throw new IllegalStateException("The edges of a frozen graph can't change");
+        }
+        long start = metrics.start();
+        if (sccUpdater == null) {
+            sccUpdater = new SCCUpdater();
+        }
 
-            VertexTime(String v, int t) {
-                vertex = v;
-                time = t;
+        // Keep only removals of edges that exist, and additions of edges that don't
+        HashSet<Long> seen = new HashSet<>();
+        IntList removedEdges = new IntList();
+        for (String[] edge : removed) {
+            Integer u = vertexIds.get(edge[0]);
+            Integer v = vertexIds.get(edge[1]);
+            if (u != null && v != null && hasEdge(u, v) && seen.add(edgeKey(u, v))) {
+                removedEdges.add(u);
+                removedEdges.add(v);
+            }
+        }
+        seen.clear();
+        IntList addedEdges = new IntList();
+        int oldNumVertices = numVertices;
+        for (String[] edge : added) {
+            int u = sccUpdater.addVertex(edge[0]);
+            int v = sccUpdater.addVertex(edge[1]);
+            if ((u >= oldNumVertices || v >= oldNumVertices || !hasEdge(u, v)) && seen.add(edgeKey(u, v))) {
+                addedEdges.add(u);
+                addedEdges.add(v);
             }
         }
+        if (removedEdges.size == 0 && addedEdges.size == 0 && numVertices == oldNumVertices) {
+            metrics.end(GraphMetrics.Query.EDGE_UPDATE, start);
+            return;
+        }
 
-        ArrayList<HashSet<String>> stronglyConnectedComponents;
+        if (removedEdges.size > 0) {
+            rebuildAdjacency(removedEdges, new IntList());
+            sccUpdater.removeEdges(removedEdges);
+        } else if (numVertices > oldNumVertices) {
+            rebuildAdjacency(new IntList(), new IntList());
+        }
+        if (addedEdges.size > 0) {
+            sccUpdater.addEdges(addedEdges);
+            rebuildAdjacency(new IntList(), addedEdges);
+        }
 
-        SCCHelper(int initSize) {
-            // Create reversedGraph
-            reversedGraph = new HashMap<>(initSize);
-            initReverseGraph();
+        if (numVertices > oldNumVertices) {
+            vertexNames = Arrays.copyOf(vertexNames, numVertices);
+            componentOf = Arrays.copyOf(componentOf, numVertices);
+        }
+        modified = true;
+        componentIndexStale = true;
+        condensation = null;
+        outDegreeIndex = null;
+        inDegreeIndex = null;
+        bfsTreeCache.clear();
+        bidirectionalSearches.clear();
+        distanceSearches.clear();
+        metrics.end(GraphMetrics.Query.EDGE_UPDATE, start);
+    }
 
-            // Create finishTime map
-            visited = new HashSet<>(initSize);
-            finishTimes = new PriorityQueue<>(initSize, (v1, v2) -> v2.time - v1.time);
-            initFinishTime();
+    private static long edgeKey(int u, int v) {
+        return ((long) u << 32) | (v & 0xffffffffL);
+    }
 
-            // Compute SCC using DFS based on finishTime ordering
-            visited = new HashSet<>(initSize);
-            stronglyConnectedComponents = new ArrayList<>();
-            initSCC();
+    // Returns 'true' if the edge u -> v is in the adjacency arrays
+    private boolean hasEdge(int u, int v) {
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (targets[i] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            // Cleanup
-            reversedGraph = null;
-            visited = null;
-            finishTimes = null;
-            tempSCC = null;
+    // Lays the adjacency arrays out again without the 'removed' edges and with the 'added'
+    // edges appended to their rows. Both lists hold (from, to) pairs; removed edges must
+    // exist and added edges must not. Rows are extended to cover every vertex.
+    private void rebuildAdjacency(IntList removed, IntList added) {
+        int oldNumVertices = offsets.length - 1;
+        HashSet<Long> removedSet = new HashSet<>();
+        boolean[] hasRemovals = new boolean[numVertices];
+        for (int i = 0; i < removed.size; i += 2) {
+            removedSet.add(edgeKey(removed.data[i], removed.data[i + 1]));
+            hasRemovals[removed.data[i]] = true;
         }
 
-        private void initSCC() {
-            String vertex;
-            while (!finishTimes.isEmpty()) {
-                // Iterate through every vertex in the graph, based on finish times high to low
-                vertex = finishTimes.poll().vertex;
-                if (!visited.contains(vertex)) {
-                    HashSet<String> currentSCC = new HashSet<>();
-                    stronglyConnectedComponents.add(currentSCC);
-                    tempSCC = currentSCC;
-                    sccDFS(vertex);
+        int[] newOffsets = new int[numVertices + 1];
+        for (int v = 0; v < oldNumVertices; v++) {
+            newOffsets[v + 1] = offsets[v + 1] - offsets[v];
+        }
+        for (int i = 0; i < removed.size; i += 2) {
+            newOffsets[removed.data[i] + 1]--;
+        }
+        for (int i = 0; i < added.size; i += 2) {
+            newOffsets[added.data[i] + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] newTargets = new int[newOffsets[numVertices]];
+        int[] next = Arrays.copyOf(newOffsets, numVertices);
+        for (int v = 0; v < oldNumVertices; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (!hasRemovals[v] || !removedSet.contains(edgeKey(v, targets[i]))) {
+                    newTargets[next[v]++] = targets[i];
                 }
             }
         }
+        for (int i = 0; i < added.size; i += 2) {
+            newTargets[next[added.data[i]]++] = added.data[i + 1];
+        }
+
+        offsets = newOffsets;
+        targets = newTargets;
+        initReverseGraph();
+    }
+
+    // Set once the graph has been changed by addEdge(s) or removeEdge(s)
+    private boolean modified = false;
+    // Set when componentOffsets/componentMembers/largestComponentSize need rebuilding
+    // (and the component ids compacting) after the graph has changed
+    private boolean componentIndexStale = false;
+    // Keeps the components up to date as edges are added and removed, created on first use
+    private SCCUpdater sccUpdater;
+
+    // Rebuilds the component index if the graph has changed since it was last built,
+    // renumbering the components 0 ... numComponents - 1
+    private void ensureComponentIndex() {
+        if (!componentIndexStale) {
+            return;
+        }
+        int[] newId = new int[sccUpdater.numIds];
+        Arrays.fill(newId, -1);
+        int count = 0;
+        for (int v = 0; v < numVertices; v++) {
+            int c = componentOf[v];
+            if (newId[c] == -1) {
+                newId[c] = count++;
+            }
+            componentOf[v] = newId[c];
+        }
+        sccUpdater.renumber(newId, count);
+        initComponentIndex(componentOf, count);
+        componentIndexStale = false;
+    }
+
+    // Maintains the SCC's as edges are added and removed. Alongside componentOf, it keeps
+    // the size of every component and a topological order of the components: component
+    // 'c' owns the positions [position[c], position[c] + width[c]), and every edge between
+    // two components goes from a lower position to a higher one. Component ids freed by
+    // merges stay unused until ensureComponentIndex renumbers the components.
+    private class SCCUpdater {
+        // The width of each component's positions after a renumbering
+        private static final long SLOT = 1L << 32;
+
+        private long[] position;
+        private long[] width;
+        private int[] size;
+        // The number of component ids in use (including ids freed by merges)
+        int numIds;
+        // The position after the last component's positions
+        private long nextPosition;
+
+        // Visit marks for vertices and components. A mark only counts if it equals the
+        // current epoch, so the arrays never need clearing.
+        private int epoch = 0;
+        private int[] forwardMark;
+        private int[] backwardMark;
+        private int[] forwardComponentMark;
+        private int[] backwardComponentMark;
+
+        // The edges added so far in the current batch, which aren't in the adjacency arrays yet
+        private HashMap<Integer, IntList> addedOut = new HashMap<>();
+        private HashMap<Integer, IntList> addedIn = new HashMap<>();
+
+        SCCUpdater() {
+            ensureComponentIndex();
+            numIds = numComponents;
+            size = new int[Math.max(16, numIds)];
+            for (int c = 0; c < numComponents; c++) {
+                size[c] = componentOffsets[c + 1] - componentOffsets[c];
+            }
+            position = new long[size.length];
+            width = new long[size.length];
+            initTopologicalOrder();
+            forwardMark = new int[numVertices];
+            backwardMark = new int[numVertices];
+            forwardComponentMark = new int[size.length];
+            backwardComponentMark = new int[size.length];
+        }
+
+        // An estimate of the heap used by the positions and marks, in bytes
+        long bytes() {
+            return 8L * (position.length + width.length) + 4L * size.length
+                    + 4L * (forwardMark.length + backwardMark.length)
+                    + 4L * (forwardComponentMark.length + backwardComponentMark.length);
+        }
 
-        private void sccDFS(String v) {
-            tempSCC.add(v);
-            visited.add(v);
-            for (String u : graph.get(v)) {
-                if (!visited.contains(u)) {
-                    sccDFS(u);
+        // Orders the components topologically with Kahn's algorithm on the condensation
+        private void initTopologicalOrder() {
+            int[] inDegree = new int[numIds];
+            for (int v = 0; v < numVertices; v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    if (componentOf[targets[i]] != componentOf[v]) {
+                        inDegree[componentOf[targets[i]]]++;
+                    }
+                }
+            }
+            int[] queue = new int[numIds];
+            int head = 0, tail = 0;
+            for (int c = 0; c < numIds; c++) {
+                if (inDegree[c] == 0) {
+                    queue[tail++] = c;
+                }
+            }
+            while (head < tail) {
+                int c = queue[head];
+                position[c] = head * SLOT;
+                width[c] = SLOT;
+                head++;
+                for (int m = componentOffsets[c]; m < componentOffsets[c + 1]; m++) {
+                    int v = componentMembers[m];
+                    for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                        int d = componentOf[targets[i]];
+                        if (d != c && --inDegree[d] == 0) {
+                            queue[tail++] = d;
+                        }
+                    }
                 }
             }
+            nextPosition = numIds * SLOT;
+        }
+
+        // Returns the id of the given vertex, adding it to the graph (as its own
+        // component, after all others) if it isn't there yet
+        int addVertex(String name) {
+            Integer id = vertexIds.get(name);
+            if (id != null) {
+                return id;
+            }
+            int v = numVertices++;
+            if (v == vertexNames.length) {
+                vertexNames = Arrays.copyOf(vertexNames, Math.max(16, 2 * v));
+            }
+            vertexNames[v] = name;
+            vertexIds.put(name, v);
+            if (v == componentOf.length) {
+                componentOf = Arrays.copyOf(componentOf, Math.max(16, 2 * v));
+            }
+            if (v >= forwardMark.length) {
+                forwardMark = Arrays.copyOf(forwardMark, Math.max(16, 2 * v));
+                backwardMark = Arrays.copyOf(backwardMark, forwardMark.length);
+            }
+            int c = newComponent();
+            componentOf[v] = c;
+            size[c] = 1;
+            position[c] = nextPosition;
+            width[c] = SLOT;
+            nextPosition += SLOT;
+            numComponents++;
+            return v;
+        }
+
+        private int newComponent() {
+            if (numIds == size.length) {
+                int capacity = 2 * numIds;
+                size = Arrays.copyOf(size, capacity);
+                position = Arrays.copyOf(position, capacity);
+                width = Arrays.copyOf(width, capacity);
+                forwardComponentMark = Arrays.copyOf(forwardComponentMark, capacity);
+                backwardComponentMark = Arrays.copyOf(backwardComponentMark, capacity);
+            }
+            return numIds++;
         }
 
-        private void initFinishTime() {
-            for (String vertex : graph.keySet()) {
-                if (!visited.contains(vertex)) {
-                    finishDFS(vertex);
+        // Moves every component's data to its new id (newId[c] is -1 for unused ids)
+        void renumber(int[] newId, int count) {
+            int capacity = Math.max(16, count);
+            long[] newPosition = new long[capacity];
+            long[] newWidth = new long[capacity];
+            int[] newSize = new int[capacity];
+            for (int c = 0; c < numIds; c++) {
+                if (newId[c] != -1) {
+                    newPosition[newId[c]] = position[c];
+                    newWidth[newId[c]] = width[c];
+                    newSize[newId[c]] = size[c];
                 }
             }
+            position = newPosition;
+            width = newWidth;
+            size = newSize;
+            numIds = count;
+            forwardComponentMark = new int[capacity];
+            backwardComponentMark = new int[capacity];
+            epoch = 0;
+            Arrays.fill(forwardMark, 0);
+            Arrays.fill(backwardMark, 0);
         }
 
-        private void finishDFS(String v) {
-            visited.add(v);
-            HashSet<String> children = reversedGraph.get(v);
-            for (String child : children) {
-                if (!visited.contains(child)) {
-                    finishDFS(child);
+        // Gives the components evenly spaced positions again, keeping their order
+        private void renumberPositions() {
+            Integer[] order = new Integer[numIds];
+            for (int c = 0; c < numIds; c++) {
+                order[c] = c;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(position[a], position[b]));
+            long next = 0;
+            for (int c : order) {
+                if (size[c] > 0) {
+                    position[c] = next;
+                    width[c] = SLOT;
+                    next += SLOT;
                 }
             }
-            finishTimes.add(new VertexTime(v, finishTimeCounter++));
+            nextPosition = next;
+        }
+
+        private int nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardMark, 0);
+                Arrays.fill(backwardMark, 0);
+                Arrays.fill(forwardComponentMark, 0);
+                Arrays.fill(backwardComponentMark, 0);
+                epoch = 1;
+            }
+            return epoch;
         }
 
-        private void initReverseGraph() {
-            for (String vertex : graph.keySet()) {
-                HashSet<String> children = graph.get(vertex);
-                for (String child : children) {
-                    reversedGraph.putIfAbsent(child, new HashSet<>());
-                    reversedGraph.putIfAbsent(vertex, new HashSet<>());
-                    reversedGraph.get(child).add(vertex);
+        // Splits the components that lost an edge between two of their own vertices. The
+        // removed edges must already be gone from the adjacency arrays.
+        void removeEdges(IntList removed) {
+            ensureComponentIndex();
+            HashSet<Integer> affected = new HashSet<>();
+            for (int i = 0; i < removed.size; i += 2) {
+                int c = componentOf[removed.data[i]];
+                if (c == componentOf[removed.data[i + 1]]) {
+                    affected.add(c);
                 }
             }
+            for (int c : affected) {
+                split(c, Arrays.copyOfRange(componentMembers, componentOffsets[c], componentOffsets[c + 1]));
+            }
         }
-    }
 
-    // Performs a Bread-First Search of the graph, creating a BFS Tree in the form
-    // of a HashMap, where the value is the parent vertex of the key
-    private HashMap<String, String> bfsTree(String v) {
-        LinkedList<String> queue = new LinkedList<>();
-        int initSize = (int) Math.ceil(1.5 * graph.size());
-        HashMap<String, String> tree = new HashMap<>(initSize);
+        // Recomputes the SCC's among the members of component c with Kosaraju's algorithm
+        // (as in SCCHelper), giving each new component a share of c's positions
+        private void split(int c, int[] members) {
+            int[] finishOrder = new int[members.length];
+            int[] stack = new int[members.length];
+            int[] nextEdge = new int[members.length];
+            int finished = 0;
+
+            // Order the members by finish time of a DFS on the reversed graph
+            int visited = nextEpoch();
+            for (int root : members) {
+                if (forwardMark[root] == visited) {
+                    continue;
+                }
+                int top = 0;
+                stack[top] = root;
+                nextEdge[top] = reverseOffsets[root];
+                top++;
+                forwardMark[root] = visited;
+                while (top > 0) {
+                    int current = stack[top - 1];
+                    int edge = nextEdge[top - 1];
+                    int end = reverseOffsets[current + 1];
+                    while (edge < end && (componentOf[reverseTargets[edge]] != c
+                            || forwardMark[reverseTargets[edge]] == visited)) {
+                        edge++;
+                    }
+                    if (edge < end) {
+                        int child = reverseTargets[edge];
+                        nextEdge[top - 1] = edge + 1;
+                        forwardMark[child] = visited;
+                        stack[top] = child;
+                        nextEdge[top] = reverseOffsets[child];
+                        top++;
+                    } else {
+                        finishOrder[finished++] = current;
+                        top--;
+                    }
+                }
+            }
+
+            // Collect the new components in reverse finish order. They come out in reverse
+            // topological order, so the first one found takes the last of c's positions.
+            IntList parts = new IntList();
+            int assigned = nextEpoch();
+            for (int i = finished - 1; i >= 0; i--) {
+                int vertex = finishOrder[i];
+                if (forwardMark[vertex] == assigned) {
+                    continue;
+                }
+                int part = (parts.size == 0) ? c : newComponent();
+                parts.add(part);
+                size[part] = 0;
+                int top = 0;
+                stack[top++] = vertex;
+                forwardMark[vertex] = assigned;
+                while (top > 0) {
+                    int current = stack[--top];
+                    componentOf[current] = part;
+                    size[part]++;
+                    for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                        int u = targets[e];
+                        if (forwardMark[u] == visited) {
+                            forwardMark[u] = assigned;
+                            stack[top++] = u;
+                        }
+                    }
+                }
+            }
+            if (parts.size == 1) {
+                return;
+            }
+
+            numComponents += parts.size - 1;
+            if (width[c] / parts.size == 0) {
+                renumberPositions();
+            }
+            long start = position[c];
+            long partWidth = width[c] / parts.size;
+            for (int i = 0; i < parts.size; i++) {
+                int part = parts.data[i];
+                position[part] = start + (parts.size - 1 - i) * partWidth;
+                width[part] = partWidth;
+            }
+        }
 
-        queue.add(v);
-        tree.put(v, null);
-        while (!queue.isEmpty()) {
-            String parent = queue.pop();
-            HashSet<String> children = graph.get(parent);
-            for (String child : children) {
-                if (!tree.containsKey(child)) {
-                    queue.add(child);
-                    tree.put(child, parent);
+        // Adds the edges (given as (from, to) pairs) one at a time, merging the components
+        // of any cycle they close and restoring the topological order
+        void addEdges(IntList added) {
+            for (int i = 0; i < added.size; i += 2) {
+                int u = added.data[i];
+                int v = added.data[i + 1];
+                int cu = componentOf[u];
+                int cv = componentOf[v];
+                if (cu != cv && position[cu] > position[cv]) {
+                    reorder(u, v);
                 }
+                addedOut.computeIfAbsent(u, key -> new IntList()).add(v);
+                addedIn.computeIfAbsent(v, key -> new IntList()).add(u);
             }
+            addedOut.clear();
+            addedIn.clear();
         }
-        return tree;
-    }
 
-    // Assuming the file is in the correct format, this method will read the
-    // file, initialize the graph, and fill the graph with data
-    private void initGraphFromFile(String filename) throws IOException {
-        String errMessage = "Incorrect input file format!";
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-        String line;
-        int numVertices = 42;
+        // Pearce-Kelly: the new edge u -> v goes against the topological order. Finds the
+        // components between the two that v reaches (forward set) and that reach u (backward
+        // set). If u is in the forward set the edge closes a cycle, and the components in both
+        // sets merge into one. The affected components then share out their positions again.
+        private void reorder(int u, int v) {
+            int cu = componentOf[u];
+            int cv = componentOf[v];
+            long lower = position[cv];
+            long upper = position[cu];
+            int mark = nextEpoch();
 
-        // Parse number of edges from the first line
-        if ((line = reader.readLine()) != null) {
-            try {
-                numVertices = Integer.parseInt(line.trim());
-            } catch (NumberFormatException e) {
-                System.out.println(errMessage);
-                throw new IOException(errMessage);
+            IntList forward = search(v, offsets, targets, addedOut, forwardMark, mark, lower, upper);
+            IntList backward = search(u, reverseOffsets, reverseTargets, addedIn, backwardMark, mark, lower, upper);
+            IntList forwardComponents = components(forward, forwardComponentMark, mark);
+            IntList backwardComponents = components(backward, backwardComponentMark, mark);
+            boolean cycle = forwardMark[u] == mark;
+
+            // The positions the affected components own, in order
+            IntList slotsOwners = new IntList();
+            for (int i = 0; i < forwardComponents.size; i++) {
+                slotsOwners.add(forwardComponents.data[i]);
+            }
+            for (int i = 0; i < backwardComponents.size; i++) {
+                int c = backwardComponents.data[i];
+                if (forwardComponentMark[c] != mark) {
+                    slotsOwners.add(c);
+                }
+            }
+            int[] slots = sortByPosition(slotsOwners);
+            long[] slotPosition = new long[slots.length];
+            long[] slotWidth = new long[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                slotPosition[i] = position[slots[i]];
+                slotWidth[i] = width[slots[i]];
+            }
+
+            // Merge the components of the cycle into cu
+            if (cycle) {
+                for (int i = 0; i < forward.size; i++) {
+                    int x = forward.data[i];
+                    int c = componentOf[x];
+                    if (c != cu && backwardComponentMark[c] == mark) {
+                        componentOf[x] = cu;
+                        size[cu]++;
+                        if (--size[c] == 0) {
+                            numComponents--;
+                        }
+                    }
+                }
+            }
+
+            // The backward set takes the lowest positions, followed by the merged component,
+            // and the forward set takes the highest ones. This way forward components only
+            // move up and backward components only move down, so edges to and from the rest
+            // of the graph still go from lower positions to higher ones.
+            int slot = 0;
+            for (int c : sortByPosition(backwardComponents)) {
+                if (!cycle || forwardComponentMark[c] != mark) {
+                    position[c] = slotPosition[slot];
+                    width[c] = slotWidth[slot];
+                    slot++;
+                }
+            }
+            if (cycle) {
+                position[cu] = slotPosition[slot];
+                width[cu] = slotWidth[slot];
+            }
+            int[] forwardOrder = sortByPosition(forwardComponents);
+            slot = slots.length - 1;
+            for (int i = forwardOrder.length - 1; i >= 0; i--) {
+                int c = forwardOrder[i];
+                if (!cycle || backwardComponentMark[c] != mark) {
+                    position[c] = slotPosition[slot];
+                    width[c] = slotWidth[slot];
+                    slot--;
+                }
             }
         }
 
-        // Initialize the graph
-        graph = new HashMap<>((int) Math.ceil(1.5 * numVertices));
+        // Depth-first search from 'start' over the adjacency arrays plus the edges added so
+        // far in this batch, only visiting vertices whose component's position is within
+        // [lower, upper]. Returns the visited vertices.
+        private IntList search(int start, int[] adjOffsets, int[] adjTargets, HashMap<Integer, IntList> extra,
+                               int[] visited, int mark, long lower, long upper) {
+            IntList found = new IntList();
+            IntList stack = new IntList();
+            visited[start] = mark;
+            stack.add(start);
+            while (stack.size > 0) {
+                int x = stack.data[--stack.size];
+                found.add(x);
+                for (int i = adjOffsets[x]; i < adjOffsets[x + 1]; i++) {
+                    visit(adjTargets[i], visited, mark, lower, upper, stack);
+                }
+                IntList more = extra.get(x);
+                if (more != null) {
+                    for (int i = 0; i < more.size; i++) {
+                        visit(more.data[i], visited, mark, lower, upper, stack);
+                    }
+                }
+            }
+            return found;
+        }
 
-        int splitIndex;
-        String from, to;
-        // Parse the graph data from the remaining lines
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
+        private void visit(int y, int[] visited, int mark, long lower, long upper, IntList stack) {
+            if (visited[y] != mark) {
+                long p = position[componentOf[y]];
+                if (p >= lower && p <= upper) {
+                    visited[y] = mark;
+                    stack.add(y);
+                }
+            }
+        }
 
-            splitIndex = line.indexOf(" ");
-            from = line.substring(0, splitIndex);
-            to = line.substring(splitIndex).trim();
+        // Returns the distinct components of the given vertices, marking each one
+        private IntList components(IntList vertices, int[] componentMark, int mark) {
+            IntList result = new IntList();
+            for (int i = 0; i < vertices.size; i++) {
+                int c = componentOf[vertices.data[i]];
+                if (componentMark[c] != mark) {
+                    componentMark[c] = mark;
+                    result.add(c);
+                }
+            }
+            return result;
+        }
 
-            graph.putIfAbsent(from, new HashSet<>());
-            graph.putIfAbsent(to, new HashSet<>());
-            graph.get(from).add(to);
+        private int[] sortByPosition(IntList components) {
+            Integer[] sorted = new Integer[components.size];
+            for (int i = 0; i < components.size; i++) {
+                sorted[i] = components.data[i];
+            }
+            Arrays.sort(sorted, (a, b) -> Long.compare(position[a], position[b]));
+            int[] result = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                result[i] = sorted[i];
+            }
+            return result;
         }
-        reader.close();
     }
 
-    // Used for running the report
-    private String largestOutDegree() {
-        int max = 0;
-        String maxVertex = "";
-        for (String v : graph.keySet()) {
-            if (graph.get(v).size() > max) {
-                max = graph.get(v).size();
-                maxVertex = v;
-            }
+    /**
+     * This method returns an array list of strings that represents the BFS path from u to v.
+     * The first vertex in the path must be u and the last vertex must be v. If there is no
+     * path from u to v, then this method returns an empty list.
+     * <p>
+     * The search stops as soon as v is reached. On graphs with at least BIDIRECTIONAL_THRESHOLD
+     * vertices, it searches forwards from u and backwards from v at the same time, meeting in the middle.
+     *
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     * @return The BFS path from u to v.
+     */
+    public ArrayList<String> bfsPath(String u, String v) {
+        long start = metrics.start();
+        ArrayList<String> path = findBfsPath(u, v);
+        metrics.end(GraphMetrics.Query.BFS_PATH, start);
+        return path;
+    }
+
+    // Finds the path returned by bfsPath
+    private ArrayList<String> findBfsPath(String u, String v) {
+        ArrayList<String> pathList = new ArrayList<>();
+
+        Integer source = vertexIds.get(u);
+        if (source == null) {
+            // The starting vertex wasn't in the graph, so there's no path
+            return pathList;
+        }
+
+        // If u == v (same vertex), return a list [u, v]
+        // per clarifications in discussion post "BFS Path" by Logan Heitz from 3/26/17.
+        if (u.equals(v)) {
+            pathList.add(u);
+            pathList.add(v);
+            return pathList;
+        }
+
+        Integer target = vertexIds.get(v);
+        if (target == null) {
+            // The ending vertex wasn't in the graph, so there's no path
+            return pathList;
+        }
+
+        int[] path;
+        if (numVertices >= BIDIRECTIONAL_THRESHOLD) {
+            BidirectionalSearch search = bidirectionalSearches.poll();
+            if (search == null) {
+                search = new BidirectionalSearch();
+            }
+            path = search.path(source, target);
+            bidirectionalSearches.offer(search);
+        } else {
+            path = forwardPath(source, target);
+        }
+
+        return toPathList(path);
+    }
+
+    /**
+     * Finds the BFS path for every (u, v) pair in a batch. The pairs are grouped by their
+     * starting vertex, and one BFS Tree is built per distinct starting vertex to answer all of
+     * its pairs. Recently built BFS Trees are kept in an LRU cache (see setBfsTreeCacheSize),
+     * so later batches from the same starting vertices don't need a new search.
+     *
+     * @param pairs Each element is an array {u, v}, as would be passed to bfsPath
+     * @return The BFS path for each pair, in the same order as pairs. Each path follows the
+     * same rules as bfsPath.
+     */
+    public ArrayList<ArrayList<String>> bfsPaths(List<String[]> pairs) {
+        long start = metrics.start();
+        ArrayList<ArrayList<String>> paths = new ArrayList<>(pairs.size());
+        // Indexes of the pairs that need a search, grouped by starting vertex
+        LinkedHashMap<Integer, IntList> pairsBySource = new LinkedHashMap<>();
+
+        for (int i = 0; i < pairs.size(); i++) {
+            String u = pairs.get(i)[0];
+            String v = pairs.get(i)[1];
+            Integer source = vertexIds.get(u);
+            if (source == null || u.equals(v) || !vertexIds.containsKey(v)) {
+                // No search needed: bfsPath answers these directly
+                paths.add(findBfsPath(u, v));
+            } else {
+                paths.add(null);
+                pairsBySource.computeIfAbsent(source, key -> new IntList()).add(i);
+            }
+        }
+
+        for (Map.Entry<Integer, IntList> group : pairsBySource.entrySet()) {
+            int source = group.getKey();
+            IntList indexes = group.getValue();
+            int[] tree = bfsTreeCache.get(source);
+            if (tree == null && indexes.size == 1) {
+                // A single search to a single vertex can stop early, so don't build a whole tree
+                int index = indexes.data[0];
+                paths.set(index, findBfsPath(pairs.get(index)[0], pairs.get(index)[1]));
+                continue;
+            }
+            if (tree == null) {
+                tree = bfsTree(source, NO_PARENT, GraphMetrics.Query.BFS_PATHS);
+                bfsTreeCache.put(source, tree);
+            }
+            for (int i = 0; i < indexes.size; i++) {
+                int index = indexes.data[i];
+                int target = vertexIds.get(pairs.get(index)[1]);
+                paths.set(index, toPathList(pathFromTree(tree, source, target)));
+            }
+        }
+        metrics.end(GraphMetrics.Query.BFS_PATHS, start);
+        return paths;
+    }
+
+    /**
+     * Sets how much memory the cache of BFS Trees used by bfsPaths may hold. Each cached
+     * tree takes 4 bytes per vertex. Least recently used trees are evicted first.
+     *
+     * @param maxBytes The maximum size of the cache in bytes; 0 disables the cache
+     */
+    public void setBfsTreeCacheSize(long maxBytes) {
+        bfsTreeCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * @return The number of times bfsPaths found a starting vertex's BFS Tree in the cache
+     */
+    public long bfsTreeCacheHits() {
+        return bfsTreeCache.hits;
+    }
+
+    /**
+     * @return The number of times bfsPaths looked for a starting vertex's BFS Tree in the
+     * cache and didn't find it
+     */
+    public long bfsTreeCacheMisses() {
+        return bfsTreeCache.misses;
+    }
+
+    /**
+     * Finds the length of the shortest path from v to every vertex in the graph, in one
+     * breadth-first search that switches between following edges forwards from the frontier
+     * and backwards from the unvisited vertices, whichever touches fewer edges at each level.
+     *
+     * @param v Represents a vertex in the graph
+     * @return The distance from v to every vertex, indexed by vertex id (see vertexName).
+     * Vertices that can't be reached from v, or every vertex if v isn't in the graph, have
+     * distance UNREACHED.
+     */
+    public int[] distancesFrom(String v) {
+        long start = metrics.start();
+        Integer source = vertexIds.get(v);
+        int[] distance;
+        if (source == null) {
+            distance = new int[numVertices];
+            Arrays.fill(distance, UNREACHED);
+        } else {
+            DistanceSearch search = distanceSearches.poll();
+            if (search == null) {
+                search = new DistanceSearch();
+            }
+            distance = search.distancesFrom(source);
+            distanceSearches.offer(search);
+        }
+        metrics.end(GraphMetrics.Query.DISTANCES_FROM, start);
+        return distance;
+    }
+
+    /**
+     * Finds the distances from many sources at once. The sources are searched in batches of
+     * 64, with each batch sharing a single traversal of the graph: every vertex keeps a 64-bit
+     * mask of the sources that have reached it. The batches run in parallel on the common
+     * ForkJoinPool.
+     *
+     * @param sources Vertices in the graph; duplicates are allowed
+     * @return One array per source, in the same order as sources, as would be returned by
+     * distancesFrom(source)
+     */
+    public int[][] distancesFrom(List<String> sources) {
+        int[][] distances = new int[sources.size()][];
+        multiSourceSearch(sources, distances, null);
+        return distances;
+    }
+
+    /**
+     * Counts the vertices at each distance from many sources at once, without keeping the
+     * distances themselves. This is enough for eccentricities (the length of a source's array
+     * minus one), closeness and hop histograms. The sources are searched in parallel batches
+     * of 64, like distancesFrom(sources).
+     *
+     * @param sources Vertices in the graph; duplicates are allowed
+     * @return One array per source, in the same order as sources. Element 'd' of a source's
+     * array is the number of vertices at distance d from it, so element 0 is 1 (the source
+     * itself) and the last element is the last distance with any vertices. The array is empty
+     * if the source isn't in the graph.
+     */
+    public int[][] hopCounts(List<String> sources) {
+        int[][] hopCounts = new int[sources.size()][];
+        multiSourceSearch(sources, null, hopCounts);
+        return hopCounts;
+    }
+
+    // Runs the multi-source searches for distancesFrom(sources) or hopCounts(sources),
+    // filling in whichever of the two result arrays isn't null
+    private void multiSourceSearch(List<String> sources, int[][] distances, int[][] hopCounts) {
+        long start = metrics.start();
+        int[] ids = new int[sources.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = vertexIds.get(sources.get(i));
+            ids[i] = (id == null) ? NO_PARENT : id;
+        }
+        int numBatches = (ids.length + Long.SIZE - 1) / Long.SIZE;
+        if (numBatches > 0) {
+            ForkJoinPool.commonPool().invoke(new MultiSourceTask(ids, 0, numBatches, distances, hopCounts));
+        }
+        metrics.end(GraphMetrics.Query.MULTI_SOURCE, start);
+    }
+
+    /**
+     * The distance of a vertex that can't be reached, in the arrays returned by distancesFrom
+     */
+    public static final int UNREACHED = -1;
+
+    // Reused by distancesFrom, created on first use. A search is taken from the pool for
+    // the length of one call, so concurrent calls never share one.
+    private ConcurrentLinkedQueue<DistanceSearch> distanceSearches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The damping factor used by pageRank(): the chance that the random surfer follows a link
+     * instead of jumping to a random page
+     */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /**
+     * The tolerance used by pageRank(): iteration stops once the ranks change by less than
+     * this in total (L1 norm)
+     */
+    public static final double DEFAULT_PAGE_RANK_TOLERANCE = 1e-6;
+
+    /**
+     * The most iterations pageRank() runs
+     */
+    public static final int DEFAULT_PAGE_RANK_ITERATIONS = 100;
+
+    /**
+     * @return pageRank(DEFAULT_DAMPING, DEFAULT_PAGE_RANK_TOLERANCE, DEFAULT_PAGE_RANK_ITERATIONS)
+     */
+    public double[] pageRank() {
+        return pageRank(DEFAULT_DAMPING, DEFAULT_PAGE_RANK_TOLERANCE, DEFAULT_PAGE_RANK_ITERATIONS);
+    }
+
+    /**
+     * Computes the PageRank of every vertex by power iteration. The random surfer follows a
+     * random out-edge with probability 'damping', and otherwise jumps to a uniformly random
+     * vertex; from a vertex without out-edges it always jumps. Each iteration pulls the rank
+     * flowing into every vertex along its in-edges, in parallel over ranges of vertices on the
+     * common ForkJoinPool, and allocates nothing.
+     *
+     * @param damping       The chance of following a link, from 0 to 1
+     * @param tolerance     Iteration stops once the ranks change by less than this in total (L1 norm)
+     * @param maxIterations Iteration stops after this many iterations, converged or not
+     * @return The rank of every vertex, indexed by vertex id (see vertexName). The ranks add up to 1.
+     */
+    public double[] pageRank(double damping, double tolerance, int maxIterations) {
+        return rank(null, damping, tolerance, maxIterations);
+    }
+
+    /**
+     * Computes personalized PageRank: like pageRank, except that the random surfer only ever
+     * jumps to one of the seed vertices, so the ranks measure how close each vertex is to the
+     * seeds.
+     *
+     * @param seeds         Vertices in the graph; vertices that aren't in the graph are ignored
+     * @param damping       See pageRank
+     * @param tolerance     See pageRank
+     * @param maxIterations See pageRank
+     * @return The rank of every vertex, indexed by vertex id. The ranks add up to 1, or are all
+     * 0 if none of the seeds are in the graph.
+     */
+    public double[] personalizedPageRank(Collection<String> seeds, double damping, double tolerance, int maxIterations) {
+        double[] teleport = new double[numVertices];
+        int numSeeds = 0;
+        for (String seed : seeds) {
+            Integer id = vertexIds.get(seed);
+            if (id != null && teleport[id] == 0) {
+                teleport[id] = 1;
+                numSeeds++;
+            }
+        }
+        if (numSeeds == 0) {
+            return teleport;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            teleport[v] /= numSeeds;
+        }
+        return rank(teleport, damping, tolerance, maxIterations);
+    }
+
+    /**
+     * @param ranks Ranks indexed by vertex id, as returned by pageRank
+     * @param k     The number of vertices to return
+     * @return The k vertices with the highest rank (or every vertex, if there are fewer than k),
+     * highest first. Vertices with the same rank are in id order.
+     */
+    public ArrayList<String> topRanked(double[] ranks, int k) {
+        int count = Math.max(0, Math.min(k, ranks.length));
+        // A heap of the best 'count' vertices so far, with the worst of them at the root
+        int[] heap = new int[count];
+        int size = 0;
+        for (int v = 0; v < ranks.length && count > 0; v++) {
+            if (size < count) {
+                heap[size++] = v;
+                siftUp(heap, size - 1, ranks);
+            } else if (rankedBefore(v, heap[0], ranks)) {
+                heap[0] = v;
+                siftDown(heap, size, ranks);
+            }
+        }
+        // Take the worst remaining vertex off the heap until it is empty, filling in from the back
+        String[] top = new String[size];
+        while (size > 0) {
+            top[size - 1] = vertexNames[heap[0]];
+            heap[0] = heap[--size];
+            siftDown(heap, size, ranks);
+        }
+        return new ArrayList<>(Arrays.asList(top));
+    }
+
+    // 'true' if vertex a comes before vertex b in topRanked: a higher rank, or the same rank and a lower id
+    private static boolean rankedBefore(int a, int b, double[] ranks) {
+        return ranks[a] > ranks[b] || (ranks[a] == ranks[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int i, double[] ranks) {
+        while (i > 0 && rankedBefore(heap[(i - 1) / 2], heap[i], ranks)) {
+            int parent = (i - 1) / 2;
+            int swap = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] ranks) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (rankedBefore(heap[worst], heap[child], ranks)) {
+                    worst = child;
+                }
+            }
+            if (worst == i) {
+                return;
+            }
+            int swap = heap[i];
+            heap[i] = heap[worst];
+            heap[worst] = swap;
+            i = worst;
+        }
+    }
+
+    // Runs PageRank with the given jump distribution (null for uniform)
+    private double[] rank(double[] teleport, double damping, double tolerance, int maxIterations) {
+        if (damping < 0 || damping > 1) {
+            throw new IllegalArgumentException("The damping factor must be from 0 to 1");
+        }
+        long start = metrics.start();
+        double[] ranks = (numVertices == 0) ? new double[0]
+                : new PageRank(teleport, damping).run(tolerance, maxIterations);
+        metrics.end(GraphMetrics.Query.PAGE_RANK, start);
+        return ranks;
+    }
+
+    /**
+     * @return The number of vertices in the graph. Vertex ids run from 0 to numVertices() - 1.
+     */
+    public int numVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @param id The id of a vertex, from 0 to numVertices() - 1. Vertices are numbered in the
+     *           order they first appear in the graph file, followed by any vertices added later.
+     * @return The vertex with that id
+     */
+    public String vertexName(int id) {
+        return vertexNames[id];
+    }
+
+    /**
+     * The default size of the BFS Tree cache used by bfsPaths, in bytes
+     */
+    public static final long DEFAULT_BFS_TREE_CACHE_BYTES = 64L << 20;
+
+    private BfsTreeCache bfsTreeCache = new BfsTreeCache(DEFAULT_BFS_TREE_CACHE_BYTES);
+
+    // An LRU cache of BFS Trees by starting vertex, bounded by the memory the trees use.
+    // Even a lookup reorders the LRU list, so every method holds the cache's lock.
+    private static class BfsTreeCache {
+        private LinkedHashMap<Integer, int[]> trees = new LinkedHashMap<>(16, 0.75f, true);
+        private long maxBytes;
+        private volatile long bytes = 0;
+        volatile long hits = 0;
+        volatile long misses = 0;
+
+        BfsTreeCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized int[] get(int source) {
+            int[] tree = trees.get(source);
+            if (tree == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return tree;
+        }
+
+        synchronized void put(int source, int[] tree) {
+            long treeBytes = 4L * tree.length;
+            if (treeBytes > maxBytes) {
+                return;
+            }
+            int[] old = trees.put(source, tree);
+            bytes += treeBytes - (old == null ? 0 : 4L * old.length);
+            evict();
+        }
+
+        synchronized void clear() {
+            trees.clear();
+            bytes = 0;
+        }
+
+        synchronized void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            evict();
+        }
+
+        // Removes least recently used trees until the cache fits in maxBytes
+        private void evict() {
+            Iterator<int[]> iterator = trees.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                bytes -= 4L * iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    // Converts a path of vertex ids to a list of vertex names (an empty list if path is null)
+    private ArrayList<String> toPathList(int[] path) {
+        if (path == null) {
+            // There is no path from u to v, so return an empty ArrayList
+            return new ArrayList<>();
+        }
+        ArrayList<String> pathList = new ArrayList<>(path.length);
+        for (int vertex : path) {
+            pathList.add(vertexNames[vertex]);
+        }
+        return pathList;
+    }
+
+    /**
+     * Graphs with at least this many vertices use a bidirectional search in bfsPath
+     */
+    public static final int BIDIRECTIONAL_THRESHOLD = 1 << 16;
+
+    // Reused by bfsPath on large graphs, created on first use. A search is taken from the
+    // pool for the length of one call, so concurrent calls never share one.
+    private ConcurrentLinkedQueue<BidirectionalSearch> bidirectionalSearches = new ConcurrentLinkedQueue<>();
+
+    // Returns the BFS path from source to target (both included), or null if there is none
+    private int[] forwardPath(int source, int target) {
+        int[] queue = new int[numVertices];
+        GraphSearches.BfsSearch search = new GraphSearches.BfsSearch(adjacency,
+                GraphSearches.IntArray.of(new int[numVertices]), GraphSearches.IntArray.of(new int[numVertices]),
+                GraphSearches.IntArray.of(queue));
+        int[] path = search.path(source, target);
+        recordVisited(GraphMetrics.Query.BFS_PATH, queue, search.expanded, search.reached, offsets);
+        return path;
+    }
+
+    // Returns the path from source to target (both included) in a BFS Tree rooted at
+    // source, or null if target isn't in the tree
+    private int[] pathFromTree(int[] bfsTree, int source, int target) {
+        if (bfsTree[target] == NO_PARENT) {
+            return null;
+        }
+
+        // Count the vertices in the path, then fill it in from child to parent (from target to source)
+        int length = 1;
+        for (int current = target; current != source; current = bfsTree[current]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int current = target;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = current;
+            current = bfsTree[current];
+        }
+        return path;
+    }
+
+    // Breadth-first search from both ends of a path at once: one search follows edges
+    // forwards from the source, the other follows them backwards from the target, and
+    // each step expands a full level of whichever frontier is smaller. The arrays are
+    // allocated once and reused; a vertex's entries only count if its stamp matches
+    // the current search, so nothing needs to be cleared between searches.
+    private class BidirectionalSearch {
+        private int epoch = 0;
+        private int[] forwardStamp = new int[numVertices];
+        private int[] backwardStamp = new int[numVertices];
+        // Parent of each vertex in the forward tree, and child in the backward tree
+        private int[] forwardParent = new int[numVertices];
+        private int[] backwardChild = new int[numVertices];
+        private int[] forwardDistance = new int[numVertices];
+        private int[] backwardDistance = new int[numVertices];
+        private int[] forwardQueue = new int[numVertices];
+        private int[] backwardQueue = new int[numVertices];
+
+        // The best meeting vertex found so far and the length of the path through it
+        private int meet;
+        private int meetLength;
+
+        // Returns the BFS path from source to target (both included), or null if there is none
+        int[] path(int source, int target) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+            forwardStamp[source] = epoch;
+            forwardParent[source] = source;
+            forwardDistance[source] = 0;
+            forwardQueue[0] = source;
+            backwardStamp[target] = epoch;
+            backwardChild[target] = target;
+            backwardDistance[target] = 0;
+            backwardQueue[0] = target;
+
+            int forwardHead = 0, forwardTail = 1;
+            int backwardHead = 0, backwardTail = 1;
+            meet = NO_PARENT;
+            meetLength = Integer.MAX_VALUE;
+
+            // Once a level produces a meeting vertex, the shortest meeting over that
+            // level is the shortest path overall
+            while (meet == NO_PARENT && forwardHead < forwardTail && backwardHead < backwardTail) {
+                if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                    int levelEnd = forwardTail;
+                    while (forwardHead < levelEnd) {
+                        forwardTail = expand(forwardQueue[forwardHead++], forwardTail, offsets, targets,
+                                forwardStamp, forwardParent, forwardDistance, forwardQueue,
+                                backwardStamp, backwardDistance);
+                    }
+                } else {
+                    int levelEnd = backwardTail;
+                    while (backwardHead < levelEnd) {
+                        backwardTail = expand(backwardQueue[backwardHead++], backwardTail, reverseOffsets, reverseTargets,
+                                backwardStamp, backwardChild, backwardDistance, backwardQueue,
+                                forwardStamp, forwardDistance);
+                    }
+                }
+            }
+            recordVisited(GraphMetrics.Query.BFS_PATH, forwardQueue, forwardHead, forwardTail, offsets);
+            recordVisited(GraphMetrics.Query.BFS_PATH, backwardQueue, backwardHead, backwardTail, reverseOffsets);
+            if (meet == NO_PARENT) {
+                return null;
+            }
+
+            int[] path = new int[meetLength + 1];
+            int index = forwardDistance[meet];
+            for (int current = meet; index >= 0; current = forwardParent[current]) {
+                path[index--] = current;
+            }
+            index = forwardDistance[meet];
+            for (int current = meet; current != target; ) {
+                current = backwardChild[current];
+                path[++index] = current;
+            }
+            return path;
+        }
+
+        // Visits the unvisited neighbours of v on one side of the search, recording any
+        // that the other side has already reached. Returns the new queue tail.
+        private int expand(int v, int tail, int[] adjOffsets, int[] adjTargets,
+                           int[] stamp, int[] link, int[] distance, int[] queue,
+                           int[] otherStamp, int[] otherDistance) {
+            for (int i = adjOffsets[v]; i < adjOffsets[v + 1]; i++) {
+                int u = adjTargets[i];
+                if (stamp[u] == epoch) {
+                    continue;
+                }
+                stamp[u] = epoch;
+                link[u] = v;
+                distance[u] = distance[v] + 1;
+                queue[tail++] = u;
+                if (otherStamp[u] == epoch && distance[u] + otherDistance[u] < meetLength) {
+                    meet = u;
+                    meetLength = distance[u] + otherDistance[u];
+                }
+            }
+            return tail;
+        }
+    }
+
+    // Direction-optimizing breadth-first search (Beamer et al.). Each level is expanded either
+    // top-down, by following the edges out of the frontier, or bottom-up, by checking every
+    // unvisited vertex for a parent in the frontier, whichever is expected to touch fewer edges.
+    // The visited set is a bitset; the frontier is a range of the queue, copied into a bitset
+    // for bottom-up levels. Everything but the returned distances is allocated once and reused.
+    private class DistanceSearch {
+        // Go bottom-up once the frontier's out-edges exceed 1/ALPHA of the unvisited vertices'
+        // in-edges, and back top-down once the frontier has fewer than 1/BETA of the vertices
+        private static final int ALPHA = 14;
+        private static final int BETA = 24;
+
+        private long[] visited = new long[(numVertices + 63) >>> 6];
+        private long[] frontier = new long[visited.length];
+        // Every visited vertex in the order it was visited, so each level is a range of the queue
+        private int[] queue = new int[numVertices];
+
+        int[] distancesFrom(int source) {
+            int[] distance = new int[numVertices];
+            Arrays.fill(distance, UNREACHED);
+            Arrays.fill(visited, 0);
+            if ((numVertices & 63) != 0) {
+                // The padding bits past the last vertex count as visited
+                visited[visited.length - 1] = -1L << numVertices;
+            }
+
+            visited[source >>> 6] |= 1L << source;
+            distance[source] = 0;
+            queue[0] = source;
+            int head = 0, tail = 1;
+            long frontierEdges = offsets[source + 1] - offsets[source];
+            long unvisitedEdges = targets.length - (reverseOffsets[source + 1] - reverseOffsets[source]);
+            boolean bottomUp = false;
+            // Edges looked at, for the metrics
+            long scanned = 0;
+
+            for (int depth = 1; head < tail; depth++) {
+                int levelEnd = tail;
+                if (bottomUp) {
+                    bottomUp = levelEnd - head >= numVertices / BETA;
+                } else {
+                    bottomUp = frontierEdges > unvisitedEdges / ALPHA;
+                }
+
+                long nextEdges = 0;
+                if (bottomUp) {
+                    for (int i = head; i < levelEnd; i++) {
+                        frontier[queue[i] >>> 6] |= 1L << queue[i];
+                    }
+                    for (int word = 0; word < visited.length; word++) {
+                        for (long unvisited = ~visited[word]; unvisited != 0; unvisited &= unvisited - 1) {
+                            int v = (word << 6) | Long.numberOfTrailingZeros(unvisited);
+                            int i = reverseOffsets[v];
+                            while (i < reverseOffsets[v + 1]) {
+                                int parent = reverseTargets[i++];
+                                if ((frontier[parent >>> 6] & (1L << parent)) != 0) {
+                                    visited[word] |= 1L << v;
+                                    distance[v] = depth;
+                                    queue[tail++] = v;
+                                    nextEdges += offsets[v + 1] - offsets[v];
+                                    unvisitedEdges -= reverseOffsets[v + 1] - reverseOffsets[v];
+                                    break;
+                                }
+                            }
+                            scanned += i - reverseOffsets[v];
+                        }
+                    }
+                    for (int i = head; i < levelEnd; i++) {
+                        frontier[queue[i] >>> 6] = 0;
+                    }
+                } else {
+                    for (int i = head; i < levelEnd; i++) {
+                        int parent = queue[i];
+                        scanned += offsets[parent + 1] - offsets[parent];
+                        for (int e = offsets[parent]; e < offsets[parent + 1]; e++) {
+                            int v = targets[e];
+                            if ((visited[v >>> 6] & (1L << v)) == 0) {
+                                visited[v >>> 6] |= 1L << v;
+                                distance[v] = depth;
+                                queue[tail++] = v;
+                                nextEdges += offsets[v + 1] - offsets[v];
+                                unvisitedEdges -= reverseOffsets[v + 1] - reverseOffsets[v];
+                            }
+                        }
+                    }
+                }
+                head = levelEnd;
+                frontierEdges = nextEdges;
+            }
+            metrics.visited(GraphMetrics.Query.DISTANCES_FROM, tail, scanned);
+            return distance;
+        }
+    }
+
+    // Multi-source BFS (Then et al.) for batches [fromBatch, toBatch) of up to 64 sources.
+    // Source 'i' of a batch owns bit 'i' of every mask: seen[v] has the bits of the sources
+    // that have reached v, and visit[v] those that reached v at the current level, so one
+    // pass over an edge advances every source in the batch. Only the vertices whose visit
+    // mask is set are expanded: they are listed as they are reached, so a level costs the
+    // edges of its frontier rather than a pass over every vertex. Ranges of more than one
+    // batch are split in half, with one half forked.
+    @SuppressWarnings("serial")
+    private class MultiSourceTask extends RecursiveAction {
+        private int[] sources;
+        private int fromBatch, toBatch;
+        private int[][] distances;
+        private int[][] hopCounts;
+
+        MultiSourceTask(int[] sources, int fromBatch, int toBatch, int[][] distances, int[][] hopCounts) {
+            this.sources = sources;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+            this.distances = distances;
+            this.hopCounts = hopCounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBatch - fromBatch > 1) {
+                int mid = (fromBatch + toBatch) >>> 1;
+                MultiSourceTask left = new MultiSourceTask(sources, fromBatch, mid, distances, hopCounts);
+                left.fork();
+                new MultiSourceTask(sources, mid, toBatch, distances, hopCounts).compute();
+                left.join();
+                return;
+            }
+
+            int first = fromBatch * Long.SIZE;
+            int count = Math.min(Long.SIZE, sources.length - first);
+            long[] seen = new long[numVertices];
+            long[] visit = new long[numVertices];
+            long[] next = new long[numVertices];
+            // The vertices with a visit mask, and those given a next mask, at the current level
+            int[] frontier = new int[numVertices];
+            int[] nextFrontier = new int[numVertices];
+            int frontierSize = 0;
+            // The number of vertices each source reached at the current level, and at every level
+            int[] levelCount = new int[count];
+            IntList[] counts = new IntList[count];
+            // (source, vertex) pairs reached and edges looked at, for the metrics
+            long pairs = 0;
+            long scanned = 0;
+
+            for (int i = 0; i < count; i++) {
+                int source = sources[first + i];
+                if (distances != null) {
+                    distances[first + i] = new int[numVertices];
+                    Arrays.fill(distances[first + i], UNREACHED);
+                }
+                counts[i] = new IntList();
+                if (source != NO_PARENT) {
+                    if (visit[source] == 0) {
+                        frontier[frontierSize++] = source;
+                    }
+                    seen[source] |= 1L << i;
+                    visit[source] |= 1L << i;
+                    if (distances != null) {
+                        distances[first + i][source] = 0;
+                    }
+                    counts[i].add(1);
+                    pairs++;
+                }
+            }
+
+            for (int depth = 1; frontierSize > 0; depth++) {
+                int nextSize = 0;
+                for (int f = 0; f < frontierSize; f++) {
+                    int v = frontier[f];
+                    long sourcesAtV = visit[v];
+                    scanned += offsets[v + 1] - offsets[v];
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        int child = targets[e];
+                        long reached = sourcesAtV & ~seen[child];
+                        if (reached == 0) {
+                            continue;
+                        }
+                        if (next[child] == 0) {
+                            nextFrontier[nextSize++] = child;
+                        }
+                        seen[child] |= reached;
+                        next[child] |= reached;
+                        pairs += Long.bitCount(reached);
+                        for (; reached != 0; reached &= reached - 1) {
+                            int i = Long.numberOfTrailingZeros(reached);
+                            levelCount[i]++;
+                            if (distances != null) {
+                                distances[first + i][child] = depth;
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    if (levelCount[i] > 0) {
+                        counts[i].add(levelCount[i]);
+                        levelCount[i] = 0;
+                    }
+                }
+                // Only the frontier's masks are set, so only they need clearing
+                for (int f = 0; f < frontierSize; f++) {
+                    visit[frontier[f]] = 0;
+                }
+                long[] swap = visit;
+                visit = next;
+                next = swap;
+                int[] swapFrontier = frontier;
+                frontier = nextFrontier;
+                nextFrontier = swapFrontier;
+                frontierSize = nextSize;
+            }
+
+            if (hopCounts != null) {
+                for (int i = 0; i < count; i++) {
+                    hopCounts[first + i] = counts[i].toArray();
+                }
+            }
+            metrics.visited(GraphMetrics.Query.MULTI_SOURCE, pairs, scanned);
+        }
+    }
+
+    // Power iteration for PageRank. Each iteration pulls, for every vertex v, the rank of its
+    // in-neighbours divided by their out degrees (their 'contribution'), so every vertex is
+    // written by exactly one task and no synchronization is needed. The contributions of the
+    // next iteration are written to a second array, since other tasks are still reading the
+    // current ones. The rank of vertices without out-edges ('dangling' rank) is spread over
+    // the jump distribution. The arrays and tasks are created once and reused every iteration.
+    private class PageRank {
+        // Ranges of vertices with about this many in-edges plus vertices go to one task
+        private static final int CHUNK_WORK = 1 << 15;
+
+        private final double[] teleport;
+        private final double damping;
+        private final double[] rank = new double[numVertices];
+        private double[] contribution = new double[numVertices];
+        private double[] nextContribution = new double[numVertices];
+        // The weight of the jump distribution in the current iteration
+        private double jump;
+        private double danglingRank = 0;
+
+        private final Chunk[] chunks;
+        private final RecursiveAction iteration = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+        };
+
+        PageRank(double[] teleport, double damping) {
+            this.teleport = teleport;
+            this.damping = damping;
+            for (int v = 0; v < numVertices; v++) {
+                rank[v] = (teleport == null) ? 1.0 / numVertices : teleport[v];
+                int degree = offsets[v + 1] - offsets[v];
+                if (degree == 0) {
+                    danglingRank += rank[v];
+                } else {
+                    contribution[v] = rank[v] / degree;
+                }
+            }
+
+            IntList bounds = new IntList();
+            bounds.add(0);
+            long work = 0;
+            for (int v = 0; v < numVertices; v++) {
+                work += 1 + reverseOffsets[v + 1] - reverseOffsets[v];
+                if (work >= CHUNK_WORK) {
+                    bounds.add(v + 1);
+                    work = 0;
+                }
+            }
+            if (bounds.data[bounds.size - 1] != numVertices) {
+                bounds.add(numVertices);
+            }
+            chunks = new Chunk[bounds.size - 1];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new Chunk(bounds.data[i], bounds.data[i + 1]);
+            }
+        }
+
+        double[] run(double tolerance, int maxIterations) {
+            int iterations = 0;
+            while (iterations < maxIterations) {
+                jump = 1 - damping + damping * danglingRank;
+                for (Chunk chunk : chunks) {
+                    chunk.reinitialize();
+                }
+                iteration.reinitialize();
+                ForkJoinPool.commonPool().invoke(iteration);
+
+                double change = 0;
+                danglingRank = 0;
+                for (Chunk chunk : chunks) {
+                    change += chunk.change;
+                    danglingRank += chunk.danglingRank;
+                }
+                double[] swap = contribution;
+                contribution = nextContribution;
+                nextContribution = swap;
+                iterations++;
+                if (change < tolerance) {
+                    break;
+                }
+            }
+            metrics.visited(GraphMetrics.Query.PAGE_RANK, (long) iterations * numVertices,
+                    (long) iterations * targets.length);
+            return rank;
+        }
+
+        // One iteration over the vertices [from, to)
+        @SuppressWarnings("serial")
+        private class Chunk extends RecursiveAction {
+            private final int from, to;
+            // The total change of the chunk's ranks, and its dangling rank, in the last iteration
+            double change;
+            double danglingRank;
+
+            Chunk(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                double change = 0;
+                double danglingRank = 0;
+                double uniform = 1.0 / numVertices;
+                for (int v = from; v < to; v++) {
+                    double sum = 0;
+                    for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+                        sum += contribution[reverseTargets[i]];
+                    }
+                    double next = damping * sum + jump * ((teleport == null) ? uniform : teleport[v]);
+                    change += Math.abs(next - rank[v]);
+                    rank[v] = next;
+                    int degree = offsets[v + 1] - offsets[v];
+                    if (degree == 0) {
+                        danglingRank += next;
+                        nextContribution[v] = 0;
+                    } else {
+                        nextContribution[v] = next / degree;
+                    }
+                }
+                this.change = change;
+                this.danglingRank = danglingRank;
+            }
+        }
+    }
+
+    // Computes the SCC's of the graph with Kosaraju's algorithm, see GraphSearches
+    private class SCCHelper {
+        // The id of the SCC each vertex belongs to, and the number of SCC's found
+        int[] componentOf;
+        int numComponents;
+
+        SCCHelper() {
+            // Order the vertices by finish time
+            GraphSearches.IntArray finishOrder = GraphSearches.IntArray.of(new int[numVertices]);
+            GraphSearches.IntArray stack = GraphSearches.IntArray.of(new int[numVertices]);
+            long start = System.nanoTime();
+            GraphSearches.finishOrder(adjacency, finishOrder, GraphSearches.IntArray.of(new int[numVertices]), stack,
+                    GraphSearches.IntArray.of(new int[numVertices]));
+            metrics.phase("finishTimeDFS", start);
+
+            // Compute SCC using DFS based on finishTime ordering
+            componentOf = new int[numVertices];
+            start = System.nanoTime();
+            numComponents = GraphSearches.components(adjacency, finishOrder, GraphSearches.IntArray.of(componentOf), stack);
+            metrics.phase("sccDFS", start);
+        }
+    }
+
+    // Computes the same SCC's as SCCHelper, in parallel, with the forward-backward
+    // algorithm: the vertices reachable both forwards and backwards from a pivot form
+    // one SCC, and the remaining vertices split into three independent subproblems
+    // (forward only, backward only, neither) that are solved as separate ForkJoin tasks.
+    // Before each step, vertices with no in- or out-edges left in their subproblem are
+    // trimmed off as singleton components.
+    private class ParallelSCCHelper {
+        // Subproblems smaller than this are solved sequentially
+        private static final int SEQUENTIAL_CUTOFF = 1 << 12;
+        // BFS frontiers larger than this are expanded in parallel, in chunks of this size
+        private static final int FRONTIER_GRAIN = 1 << 10;
+        // If more than this fraction of a subproblem was reached neither forwards nor
+        // backwards from the pivot, the rest of it is solved sequentially
+        private static final double UNPRODUCTIVE_SPLIT = 0.9;
+        // The label of a vertex whose component has been found
+        private static final int DONE = -1;
+
+        // The subproblem each vertex belongs to. Every label is owned by exactly one
+        // task, so tasks never write the same vertex.
+        private AtomicIntegerArray labels;
+        private AtomicInteger nextLabel = new AtomicInteger(1);
+        private AtomicInteger nextComponent = new AtomicInteger();
+        // In/out-degrees within a vertex's subproblem, used for trimming
+        private int[] inDegree;
+        private int[] outDegree;
+
+        // The id of the SCC each vertex belongs to, and the number of SCC's found
+        int[] componentOf;
+        int numComponents;
+
+        ParallelSCCHelper(ForkJoinPool pool) {
+            labels = new AtomicIntegerArray(numVertices);
+            inDegree = new int[numVertices];
+            outDegree = new int[numVertices];
+            componentOf = new int[numVertices];
+
+            int[] all = new int[numVertices];
+            for (int v = 0; v < numVertices; v++) {
+                all[v] = v;
+            }
+            pool.invoke(new SubproblemTask(all, 0, false));
+            numComponents = nextComponent.get();
+
+            // Cleanup
+            labels = null;
+            inDegree = null;
+            outDegree = null;
+        }
+
+        // Finds the SCC's among the vertices labelled 'label'. The largest remaining
+        // subproblem stays on this thread's work list and the others are forked, so
+        // joins never nest deeper than log(n) tasks.
+        @SuppressWarnings("serial")
+        private class SubproblemTask extends RecursiveAction {
+            private int[] members;
+            private int label;
+            private boolean sequential;
+
+            SubproblemTask(int[] members, int label, boolean sequential) {
+                this.members = members;
+                this.label = label;
+                this.sequential = sequential;
+            }
+
+            @Override
+            protected void compute() {
+                ArrayDeque<SubproblemTask> work = new ArrayDeque<>();
+                ArrayList<SubproblemTask> forked = new ArrayList<>();
+                work.push(this);
+                while (!work.isEmpty()) {
+                    ArrayList<SubproblemTask> children = work.pop().split();
+                    int largest = 0;
+                    for (int i = 1; i < children.size(); i++) {
+                        if (children.get(i).members.length > children.get(largest).members.length) {
+                            largest = i;
+                        }
+                    }
+                    for (int i = 0; i < children.size(); i++) {
+                        SubproblemTask child = children.get(i);
+                        if (i != largest && child.members.length >= SEQUENTIAL_CUTOFF) {
+                            child.fork();
+                            forked.add(child);
+                        } else {
+                            work.push(child);
+                        }
+                    }
+                }
+                for (SubproblemTask task : forked) {
+                    task.join();
+                }
+            }
+
+            // Trims this subproblem, takes out the SCC of a pivot vertex, and returns the
+            // (up to three) subproblems that are left. Small subproblems, and ones where
+            // forward-backward stopped making progress, are solved here with Kosaraju's
+            // algorithm instead.
+            private ArrayList<SubproblemTask> split() {
+                ArrayList<SubproblemTask> children = new ArrayList<>(3);
+                int[] remaining = trim(members, label);
+                if (remaining.length == 0) {
+                    return children;
+                }
+                if (sequential || remaining.length < SEQUENTIAL_CUTOFF) {
+                    kosaraju(remaining, label);
+                    return children;
+                }
+
+                int pivot = choosePivot(remaining, label);
+                int forwardLabel = nextLabel.getAndIncrement();
+                int backwardLabel = nextLabel.getAndIncrement();
+                int sccLabel = nextLabel.getAndIncrement();
+
+                // Forward pass: label -> forwardLabel. Backward pass: label -> backwardLabel,
+                // and forwardLabel -> sccLabel for vertices reached both ways.
+                labels.set(pivot, forwardLabel);
+                reach(pivot, offsets, targets, label, forwardLabel, label, forwardLabel);
+                labels.set(pivot, sccLabel);
+                reach(pivot, reverseOffsets, reverseTargets, label, backwardLabel, forwardLabel, sccLabel);
+
+                int component = nextComponent.getAndIncrement();
+                IntList forwardOnly = new IntList();
+                IntList backwardOnly = new IntList();
+                IntList neither = new IntList();
+                for (int v : remaining) {
+                    int l = labels.getPlain(v);
+                    if (l == sccLabel) {
+                        componentOf[v] = component;
+                        labels.setPlain(v, DONE);
+                    } else if (l == forwardLabel) {
+                        forwardOnly.add(v);
+                    } else if (l == backwardLabel) {
+                        backwardOnly.add(v);
+                    } else {
+                        neither.add(v);
+                    }
+                }
+
+                children.add(new SubproblemTask(forwardOnly.toArray(), forwardLabel, false));
+                children.add(new SubproblemTask(backwardOnly.toArray(), backwardLabel, false));
+                boolean stalled = neither.size > UNPRODUCTIVE_SPLIT * remaining.length;
+                children.add(new SubproblemTask(neither.toArray(), label, stalled));
+                children.removeIf(child -> child.members.length == 0);
+                return children;
+            }
+        }
+
+        // Kosaraju's algorithm (as in SCCHelper) restricted to the vertices labelled 'label'
+        private void kosaraju(int[] members, int label) {
+            int visitedLabel = nextLabel.getAndIncrement();
+            int[] finishOrder = new int[members.length];
+            int[] stack = new int[members.length];
+            int[] nextEdge = new int[members.length];
+            int finished = 0;
+
+            // Order the members by finish time of a DFS on the reversed graph
+            for (int root : members) {
+                if (labels.getPlain(root) != label) {
+                    continue;
+                }
+                int top = 0;
+                stack[top] = root;
+                nextEdge[top] = reverseOffsets[root];
+                top++;
+                labels.setPlain(root, visitedLabel);
+                while (top > 0) {
+                    int current = stack[top - 1];
+                    int edge = nextEdge[top - 1];
+                    int end = reverseOffsets[current + 1];
+                    while (edge < end && labels.getPlain(reverseTargets[edge]) != label) {
+                        edge++;
+                    }
+                    if (edge < end) {
+                        int child = reverseTargets[edge];
+                        nextEdge[top - 1] = edge + 1;
+                        labels.setPlain(child, visitedLabel);
+                        stack[top] = child;
+                        nextEdge[top] = reverseOffsets[child];
+                        top++;
+                    } else {
+                        finishOrder[finished++] = current;
+                        top--;
+                    }
+                }
+            }
+
+            // Collect the components in reverse finish order
+            for (int i = finished - 1; i >= 0; i--) {
+                int vertex = finishOrder[i];
+                if (labels.getPlain(vertex) != visitedLabel) {
+                    continue;
+                }
+                int component = nextComponent.getAndIncrement();
+                int top = 0;
+                stack[top++] = vertex;
+                labels.setPlain(vertex, DONE);
+                while (top > 0) {
+                    int current = stack[--top];
+                    componentOf[current] = component;
+                    for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                        int u = targets[e];
+                        if (labels.getPlain(u) == visitedLabel) {
+                            labels.setPlain(u, DONE);
+                            stack[top++] = u;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Repeatedly removes vertices that have no in-edges or no out-edges from other
+        // vertices labelled 'label', making each one a singleton component. Returns the
+        // members that are left.
+        private int[] trim(int[] members, int label) {
+            IntList queue = new IntList();
+            for (int v : members) {
+                inDegree[v] = countLabelled(v, reverseOffsets, reverseTargets, label);
+                outDegree[v] = countLabelled(v, offsets, targets, label);
+                if (inDegree[v] == 0 || outDegree[v] == 0) {
+                    queue.add(v);
+                }
+            }
+            int trimmed = 0;
+            for (int head = 0; head < queue.size; head++) {
+                int v = queue.data[head];
+                if (labels.getPlain(v) != label) {
+                    continue;
+                }
+                labels.setPlain(v, DONE);
+                componentOf[v] = nextComponent.getAndIncrement();
+                trimmed++;
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int child = targets[i];
+                    if (labels.getPlain(child) == label && --inDegree[child] == 0) {
+                        queue.add(child);
+                    }
+                }
+                for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++) {
+                    int parent = reverseTargets[i];
+                    if (labels.getPlain(parent) == label && --outDegree[parent] == 0) {
+                        queue.add(parent);
+                    }
+                }
+            }
+            if (trimmed == 0) {
+                return members;
+            }
+            int[] remaining = new int[members.length - trimmed];
+            int count = 0;
+            for (int v : members) {
+                if (labels.getPlain(v) == label) {
+                    remaining[count++] = v;
+                }
+            }
+            return remaining;
+        }
+
+        private int countLabelled(int v, int[] adjOffsets, int[] adjTargets, int label) {
+            int count = 0;
+            for (int i = adjOffsets[v]; i < adjOffsets[v + 1]; i++) {
+                if (labels.getPlain(adjTargets[i]) == label) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // For the whole graph, picks the member with the largest in-degree * out-degree,
+        // since it is the most likely to sit in the giant component. After that, pivots
+        // are random, which keeps the splits balanced (as with quicksort).
+        private int choosePivot(int[] members, int label) {
+            if (label != 0) {
+                return members[ThreadLocalRandom.current().nextInt(members.length)];
+            }
+            int pivot = members[0];
+            long best = -1;
+            for (int v : members) {
+                long score = (long) inDegree[v] * outDegree[v];
+                if (score > best) {
+                    best = score;
+                    pivot = v;
+                }
+            }
+            return pivot;
+        }
+
+        // Breadth-first search from 'start' over the given adjacency, relabelling every
+        // reached vertex labelled 'fromA' to 'toA' and 'fromB' to 'toB'. Only vertices
+        // with one of those two labels are traversed.
+        private void reach(int start, int[] adjOffsets, int[] adjTargets,
+                           int fromA, int toA, int fromB, int toB) {
+            int[] frontier = {start};
+            int size = 1;
+            IntList next = new IntList();
+            while (size > 0) {
+                if (size > FRONTIER_GRAIN) {
+                    frontier = new ExpandTask(frontier, 0, size, adjOffsets, adjTargets,
+                            fromA, toA, fromB, toB).invoke();
+                    size = frontier.length;
+                } else {
+                    next.size = 0;
+                    for (int f = 0; f < size; f++) {
+                        expand(frontier[f], adjOffsets, adjTargets, fromA, toA, fromB, toB, next);
+                    }
+                    frontier = next.toArray();
+                    size = frontier.length;
+                }
+            }
+        }
+
+        // Claims the unreached neighbours of v, adding them to 'next'. Claiming is a
+        // compare-and-set, so a vertex is added by at most one thread.
+        private void expand(int v, int[] adjOffsets, int[] adjTargets,
+                            int fromA, int toA, int fromB, int toB, IntList next) {
+            for (int i = adjOffsets[v]; i < adjOffsets[v + 1]; i++) {
+                int u = adjTargets[i];
+                int l = labels.get(u);
+                if ((l == fromA && labels.compareAndSet(u, fromA, toA))
+                        || (l == fromB && labels.compareAndSet(u, fromB, toB))) {
+                    next.add(u);
+                }
+            }
+        }
+
+        // Expands frontier[from] ... frontier[to - 1] in parallel, returning the next frontier
+        @SuppressWarnings("serial")
+        private class ExpandTask extends RecursiveTask<int[]> {
+            private int[] frontier;
+            private int from, to;
+            private int[] adjOffsets, adjTargets;
+            private int fromA, toA, fromB, toB;
+
+            ExpandTask(int[] frontier, int from, int to, int[] adjOffsets, int[] adjTargets,
+                       int fromA, int toA, int fromB, int toB) {
+                this.frontier = frontier;
+                this.from = from;
+                this.to = to;
+                this.adjOffsets = adjOffsets;
+                this.adjTargets = adjTargets;
+                this.fromA = fromA;
+                this.toA = toA;
+                this.fromB = fromB;
+                this.toB = toB;
+            }
+
+            @Override
+            protected int[] compute() {
+                if (to - from <= FRONTIER_GRAIN) {
+                    IntList next = new IntList();
+                    for (int f = from; f < to; f++) {
+                        expand(frontier[f], adjOffsets, adjTargets, fromA, toA, fromB, toB, next);
+                    }
+                    return next.toArray();
+                }
+                int mid = (from + to) >>> 1;
+                ExpandTask left = new ExpandTask(frontier, from, mid, adjOffsets, adjTargets, fromA, toA, fromB, toB);
+                ExpandTask right = new ExpandTask(frontier, mid, to, adjOffsets, adjTargets, fromA, toA, fromB, toB);
+                left.fork();
+                int[] rightResult = right.compute();
+                int[] leftResult = left.join();
+                int[] merged = Arrays.copyOf(leftResult, leftResult.length + rightResult.length);
+                System.arraycopy(rightResult, 0, merged, leftResult.length, rightResult.length);
+                return merged;
+            }
+        }
+    }
+
+    // A growable list of primitive ints
+    private static class IntList {
+        int[] data = new int[16];
+        int size = 0;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, 2 * size);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    // Builds the reversed graph. The in-degree of every vertex is counted first, then
+    // the reversed edges are laid out in the same compressed-sparse-row form as the graph
+    private void initReverseGraph() {
+        reverseOffsets = new int[numVertices + 1];
+        for (int i = 0; i < offsets[numVertices]; i++) {
+            reverseOffsets[targets[i] + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        }
+        reverseTargets = new int[offsets[numVertices]];
+        int[] next = Arrays.copyOf(reverseOffsets, numVertices);
+        for (int vertex = 0; vertex < numVertices; vertex++) {
+            for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+                reverseTargets[next[targets[i]]++] = vertex;
+            }
+        }
+    }
+
+    // The adjacency arrays, as they are at the time of each call
+    private class HeapAdjacency implements GraphAdjacency {
+        @Override
+        public int numVertices() {
+            return numVertices;
+        }
+
+        @Override
+        public long childStart(int v) {
+            return offsets[v];
+        }
+
+        @Override
+        public long childEnd(int v) {
+            return offsets[v + 1];
+        }
+
+        @Override
+        public int child(long edge) {
+            return targets[(int) edge];
+        }
+
+        @Override
+        public long parentStart(int v) {
+            return reverseOffsets[v];
+        }
+
+        @Override
+        public long parentEnd(int v) {
+            return reverseOffsets[v + 1];
+        }
+
+        @Override
+        public int parent(long edge) {
+            return reverseTargets[(int) edge];
+        }
+    }
+
+    // Initializes the graph and the component index from a snapshot
+    private void initFromSnapshot(GraphSnapshot snapshot) {
+        vertexNames = snapshot.vertexNames;
+        numVertices = vertexNames.length;
+        vertexIds = new HashMap<>((int) Math.ceil(1.5 * numVertices));
+        for (int v = 0; v < numVertices; v++) {
+            vertexIds.put(vertexNames[v], v);
+        }
+        offsets = snapshot.offsets;
+        targets = snapshot.targets;
+        reverseOffsets = snapshot.reverseOffsets;
+        reverseTargets = snapshot.reverseTargets;
+        componentOf = snapshot.componentOf;
+        componentOffsets = snapshot.componentOffsets;
+        componentMembers = snapshot.componentMembers;
+        numComponents = componentOffsets.length - 1;
+        largestComponentSize = snapshot.largestComponentSize;
+    }
+
+    // Builds the component index from the component id of every vertex: the members
+    // of each component are grouped together (counting sort by component id) and the
+    // size of the largest component is cached
+    private void initComponentIndex(int[] componentOf, int numComponents) {
+        long start = System.nanoTime();
+        this.componentOf = componentOf;
+        this.numComponents = numComponents;
+
+        componentOffsets = new int[numComponents + 1];
+        for (int v = 0; v < numVertices; v++) {
+            componentOffsets[componentOf[v] + 1]++;
+        }
+        largestComponentSize = 0;
+        for (int c = 0; c < numComponents; c++) {
+            largestComponentSize = Math.max(largestComponentSize, componentOffsets[c + 1]);
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        componentMembers = new int[numVertices];
+        int[] next = Arrays.copyOf(componentOffsets, numComponents);
+        for (int v = 0; v < numVertices; v++) {
+            componentMembers[next[componentOf[v]]++] = v;
+        }
+        metrics.phase("componentIndex", start);
+    }
+
+    // Marks a vertex that hasn't been reached in a BFS Tree
+    private static final int NO_PARENT = -1;
+
+    // Performs a Bread-First Search of the graph, creating a BFS Tree in the form
+    // of an array, where the value at index 'i' is the parent vertex of vertex 'i'.
+    // The root is its own parent, and unreached vertices have NO_PARENT. The search
+    // stops early once vertex 'stopAt' is reached (pass NO_PARENT to search everything).
+    // The visited vertices and edges count towards 'query' in the metrics.
+    private int[] bfsTree(int v, int stopAt, GraphMetrics.Query query) {
+        int[] queue = new int[numVertices];
+        int head = 0, tail = 0;
+        int[] tree = new int[numVertices];
+        Arrays.fill(tree, NO_PARENT);
+
+        queue[tail++] = v;
+        tree[v] = v;
+        search:
+        while (head < tail) {
+            int parent = queue[head++];
+            for (int i = offsets[parent]; i < offsets[parent + 1]; i++) {
+                int child = targets[i];
+                if (tree[child] == NO_PARENT) {
+                    queue[tail++] = child;
+                    tree[child] = parent;
+                    if (child == stopAt) {
+                        break search;
+                    }
+                }
+            }
+        }
+        recordVisited(query, queue, head, tail, offsets);
+        return tree;
+    }
+
+    // Adds a breadth-first search to the metrics: it reached queue[0] ... queue[reached - 1],
+    // and went through the edges of queue[0] ... queue[expanded - 1]
+    private void recordVisited(GraphMetrics.Query query, int[] queue, int expanded, int reached, int[] adjOffsets) {
+        if (metrics.isEnabled()) {
+            long edges = 0;
+            for (int i = 0; i < expanded; i++) {
+                edges += adjOffsets[queue[i] + 1] - adjOffsets[queue[i]];
+            }
+            metrics.visited(query, reached, edges);
+        }
+    }
+
+    // Assuming the file is in the correct format, this method will read the
+    // file, initialize the graph, and fill the graph with data
+    private void initGraphFromFile(String filename) throws IOException {
+        EdgeListLoader loader = new EdgeListLoader(filename);
+        vertexIds = loader.vertexIds;
+        vertexNames = loader.vertexNames;
+        numVertices = loader.numVertices;
+        buildAdjacency(loader.edgeFrom, loader.edgeTo, loader.numEdges);
+    }
+
+    // Builds the compressed-sparse-row adjacency from a raw edge list. Children keep
+    // the order they appeared in the edge list, and duplicate edges are dropped.
+    private void buildAdjacency(int[] edgeFrom, int[] edgeTo, int numEdges) {
+        // Counting sort of the edges by their 'from' vertex
+        offsets = new int[numVertices + 1];
+        for (int i = 0; i < numEdges; i++) {
+            offsets[edgeFrom[i] + 1]++;
+        }
+        for (int v = 0; v < numVertices; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        targets = new int[numEdges];
+        int[] next = Arrays.copyOf(offsets, numVertices);
+        for (int i = 0; i < numEdges; i++) {
+            targets[next[edgeFrom[i]]++] = edgeTo[i];
+        }
+
+        // Compact each row in place, skipping children already seen in that row
+        int[] lastSeenIn = new int[numVertices];
+        Arrays.fill(lastSeenIn, -1);
+        int write = 0;
+        for (int v = 0; v < numVertices; v++) {
+            int rowStart = offsets[v];
+            int rowEnd = offsets[v + 1];
+            offsets[v] = write;
+            for (int i = rowStart; i < rowEnd; i++) {
+                int child = targets[i];
+                if (lastSeenIn[child] != v) {
+                    lastSeenIn[child] = v;
+                    targets[write++] = child;
+                }
+            }
+        }
+        offsets[numVertices] = write;
+        if (write < targets.length) {
+            targets = Arrays.copyOf(targets, write);
         }
-        return maxVertex + " , " + max;
     }
 }
@@ -0,0 +1,200 @@
+/**
+ * The searches GraphProcessor and OffHeapGraph share, over any GraphAdjacency: the two passes of
+ * Kosaraju's SCC algorithm, and a breadth-first search for paths. Their scratch space is passed in
+ * as IntArrays, so that each graph keeps it where it keeps its adjacency: in int arrays on the
+ * heap, or in OffHeapBuffers.
+ * <p>
+ * Both depth-first searches use an explicit stack instead of recursion, so long chains of pages
+ * can't overflow the thread stack.
+ */
+class GraphSearches {
+    /**
+     * An array of ints, indexed by vertex id or by position in a search
+     */
+    interface IntArray {
+        int getInt(long index);
+
+        void putInt(long index, int value);
+
+        static IntArray of(int[] array) {
+            return new IntArray() {
+                @Override
+                public int getInt(long index) {
+                    return array[(int) index];
+                }
+
+                @Override
+                public void putInt(long index, int value) {
+                    array[(int) index] = value;
+                }
+            };
+        }
+    }
+
+    private GraphSearches() {
+    }
+
+    /**
+     * The first pass of Kosaraju's algorithm: depth-first searches of the reversed graph, from
+     * each vertex not yet visited in id order, list the vertices in the order they finish
+     * (post-order).
+     *
+     * @param finishOrder Filled with every vertex, in the order they finished
+     * @param visited     numVertices ints, all 0
+     * @param stack       numVertices ints
+     * @param nextEdge    numVertices ints, the next edge to explore of each stack entry
+     */
+    static void finishOrder(GraphAdjacency graph, IntArray finishOrder, IntArray visited, IntArray stack,
+                            IntArray nextEdge) {
+        int finished = 0;
+        for (int root = 0; root < graph.numVertices(); root++) {
+            if (visited.getInt(root) != 0) {
+                continue;
+            }
+            int top = 0;
+            stack.putInt(top, root);
+            nextEdge.putInt(top, 0);
+            top++;
+            visited.putInt(root, 1);
+            while (top > 0) {
+                int current = stack.getInt(top - 1);
+                // nextEdge holds the edge's position in current's row, which always fits in an int
+                long start = graph.parentStart(current);
+                long edge = start + nextEdge.getInt(top - 1);
+                long end = graph.parentEnd(current);
+                while (edge < end && visited.getInt(graph.parent(edge)) != 0) {
+                    edge++;
+                }
+                if (edge < end) {
+                    int child = graph.parent(edge);
+                    nextEdge.putInt(top - 1, (int) (edge + 1 - start));
+                    visited.putInt(child, 1);
+                    stack.putInt(top, child);
+                    nextEdge.putInt(top, 0);
+                    top++;
+                } else {
+                    finishOrder.putInt(finished++, current);
+                    top--;
+                }
+            }
+        }
+    }
+
+    /**
+     * The second pass of Kosaraju's algorithm: each vertex not yet in a component, latest finish
+     * first, starts a new component of the vertices it reaches that aren't in one. Components
+     * are numbered from 0 in the order they are found.
+     *
+     * @param finishOrder The vertices in the order the first pass finished them
+     * @param componentOf Filled with the component of each vertex
+     * @param stack       numVertices ints
+     * @return The number of components
+     */
+    static int components(GraphAdjacency graph, IntArray finishOrder, IntArray componentOf, IntArray stack) {
+        int numVertices = graph.numVertices();
+        for (int v = 0; v < numVertices; v++) {
+            componentOf.putInt(v, -1);
+        }
+        int numComponents = 0;
+        for (int i = numVertices - 1; i >= 0; i--) {
+            int root = finishOrder.getInt(i);
+            if (componentOf.getInt(root) >= 0) {
+                continue;
+            }
+            // The order vertices are visited in doesn't matter here, so a plain stack is enough
+            int component = numComponents++;
+            int top = 0;
+            stack.putInt(top++, root);
+            componentOf.putInt(root, component);
+            while (top > 0) {
+                int current = stack.getInt(--top);
+                for (long e = graph.childStart(current), end = graph.childEnd(current); e < end; e++) {
+                    int u = graph.child(e);
+                    if (componentOf.getInt(u) < 0) {
+                        componentOf.putInt(u, component);
+                        stack.putInt(top++, u);
+                    }
+                }
+            }
+        }
+        return numComponents;
+    }
+
+    /**
+     * Breadth-first search from a source, stopping once a target is reached. The scratch arrays
+     * are reused between searches: a vertex's parent only counts if its stamp matches the current
+     * search, so nothing needs to be cleared. A BfsSearch is for one thread at a time.
+     */
+    static class BfsSearch {
+        private final GraphAdjacency graph;
+        private final IntArray stamp;
+        private final IntArray parent;
+        private final IntArray queue;
+        private int epoch = 0;
+
+        // After a search, queue[0] ... queue[reached - 1] were reached, and the children of
+        // queue[0] ... queue[expanded - 1] were explored
+        int reached;
+        int expanded;
+
+        /**
+         * @param stamp  numVertices ints, all 0
+         * @param parent numVertices ints
+         * @param queue  numVertices ints
+         */
+        BfsSearch(GraphAdjacency graph, IntArray stamp, IntArray parent, IntArray queue) {
+            this.graph = graph;
+            this.stamp = stamp;
+            this.parent = parent;
+            this.queue = queue;
+        }
+
+        /**
+         * @return The BFS path from source to target (both included), or null if there is none
+         */
+        int[] path(int source, int target) {
+            if (++epoch == Integer.MAX_VALUE) {
+                for (int v = 0; v < graph.numVertices(); v++) {
+                    stamp.putInt(v, 0);
+                }
+                epoch = 1;
+            }
+            int head = 0, tail = 0;
+            queue.putInt(tail++, source);
+            stamp.putInt(source, epoch);
+            parent.putInt(source, source);
+            search:
+            while (head < tail) {
+                int current = queue.getInt(head++);
+                for (long e = graph.childStart(current), end = graph.childEnd(current); e < end; e++) {
+                    int child = graph.child(e);
+                    if (stamp.getInt(child) != epoch) {
+                        stamp.putInt(child, epoch);
+                        parent.putInt(child, current);
+                        queue.putInt(tail++, child);
+                        if (child == target) {
+                            break search;
+                        }
+                    }
+                }
+            }
+            reached = tail;
+            expanded = head;
+            if (stamp.getInt(target) != epoch) {
+                return null;
+            }
+
+            int length = 1;
+            for (int current = target; current != source; current = parent.getInt(current)) {
+                length++;
+            }
+            int[] path = new int[length];
+            int current = target;
+            for (int i = length - 1; i >= 0; i--) {
+                path[i] = current;
+                current = parent.getInt(current);
+            }
+            return path;
+        }
+    }
+}
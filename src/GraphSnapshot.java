@@ -0,0 +1,340 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A versioned binary snapshot of a GraphProcessor: the vertex dictionary, the forward and
+ * reverse adjacency, and the component index. Loading a snapshot skips parsing the text edge
+ * list and recomputing the SCC's.
+ * <p>
+ * The file is a header (magic number, format version, the length and modification time of the
+ * edge list it was built from, the counts, and the edge list's absolute path), followed by the arrays, followed by a CRC-32C checksum of
+ * everything before it. All numbers are big-endian. Snapshots are read through memory-mapped
+ * windows of the file, and the checksum is verified as the file is read.
+ */
+class GraphSnapshot {
+    private static final int MAGIC = 0x4750534E; // "GPSN"
+    static final int VERSION = 2;
+
+    // Snapshots are mapped and written in windows of this many bytes
+    private static final int WINDOW_BYTES = 1 << 26;
+
+    // The absolute path, length and modification time of the edge list file the graph was
+    // read from
+    String sourcePath = "";
+    long sourceLength;
+    long sourceModified;
+
+    String[] vertexNames;
+    int[] offsets;
+    int[] targets;
+    int[] reverseOffsets;
+    int[] reverseTargets;
+    int[] componentOf;
+    int[] componentOffsets;
+    int[] componentMembers;
+    int largestComponentSize;
+
+    /**
+     * @param source The edge list file the snapshot is built from
+     * @return 'true' if source is the file this snapshot was built from and still has the length
+     * and modification time recorded in it. A source that no longer exists can't be checked, and
+     * also returns 'true': the snapshot is then the only copy of the graph, so it is used.
+     */
+    boolean isFreshFor(String source) {
+        File file = new File(source);
+        return !file.exists() || (absolutePath(source).equals(sourcePath)
+                && file.length() == sourceLength && file.lastModified() == sourceModified);
+    }
+
+    /**
+     * Records the absolute path, length and modification time of the given edge list file in
+     * this snapshot
+     */
+    void stampSource(String source) {
+        File file = new File(source);
+        sourcePath = absolutePath(source);
+        sourceLength = file.length();
+        sourceModified = file.lastModified();
+    }
+
+    private static String absolutePath(String source) {
+        return Paths.get(source).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Writes this snapshot to the given file. The snapshot is written to a temporary file
+     * first and then moved into place, so readers never see a partly written snapshot.
+     */
+    void write(String filename) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(sourceLength);
+            out.putLong(sourceModified);
+            out.putInt(vertexNames.length);
+            out.putInt(targets.length);
+            out.putInt(componentOffsets.length - 1);
+            out.putInt(largestComponentSize);
+            byte[] path = sourcePath.getBytes(StandardCharsets.UTF_8);
+            out.putInt(path.length);
+            out.putBytes(path);
+            for (String name : vertexNames) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.putBytes(bytes);
+            }
+            out.putInts(offsets);
+            out.putInts(targets);
+            out.putInts(reverseOffsets);
+            out.putInts(reverseTargets);
+            out.putInts(componentOf);
+            out.putInts(componentOffsets);
+            out.putInts(componentMembers);
+            out.finish();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     *
+     * @throws IOException If the file can't be read, isn't a snapshot, has a different format
+     *                     version, or fails its checksum
+     */
+    static GraphSnapshot read(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            Reader in = new Reader(channel);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot: " + filename);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph snapshot version " + version + ": " + filename);
+            }
+
+            GraphSnapshot snapshot = new GraphSnapshot();
+            snapshot.sourceLength = in.getLong();
+            snapshot.sourceModified = in.getLong();
+            int numVertices = in.getInt();
+            int numEdges = in.getInt();
+            int numComponents = in.getInt();
+            snapshot.largestComponentSize = in.getInt();
+            snapshot.sourcePath = in.getString(filename);
+            // Each vertex has a name length and 4 ints in the arrays, each edge 2 ints, each
+            // component 1 int, plus the two offsets arrays' last entries and the checksum. The
+            // counts of a corrupt file are checked against its size before any array is allocated.
+            if (numVertices < 0 || numEdges < 0 || numComponents < 0
+                    || numVertices == Integer.MAX_VALUE || numComponents == Integer.MAX_VALUE
+                    || 4 * (5L * numVertices + 2L * numEdges + numComponents + 3) + 8 > in.remaining()) {
+                throw new IOException("Corrupt graph snapshot: " + filename);
+            }
+
+            snapshot.vertexNames = new String[numVertices];
+            for (int v = 0; v < numVertices; v++) {
+                snapshot.vertexNames[v] = in.getString(filename);
+            }
+            snapshot.offsets = in.getInts(numVertices + 1);
+            snapshot.targets = in.getInts(numEdges);
+            snapshot.reverseOffsets = in.getInts(numVertices + 1);
+            snapshot.reverseTargets = in.getInts(numEdges);
+            snapshot.componentOf = in.getInts(numVertices);
+            snapshot.componentOffsets = in.getInts(numComponents + 1);
+            snapshot.componentMembers = in.getInts(numVertices);
+            in.verifyChecksum(filename);
+            return snapshot;
+        } catch (RuntimeException e) {
+            // Anything else a corrupt file can cause, so that the caller reads the text file
+            throw new IOException("Corrupt graph snapshot: " + filename, e);
+        }
+    }
+
+    // Buffers writes to a channel, keeping a running checksum of everything written
+    private static class Writer {
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private CRC32C checksum = new CRC32C();
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; ) {
+                ensure(1);
+                int count = Math.min(bytes.length - i, buffer.remaining());
+                buffer.put(bytes, i, count);
+                i += count;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int i = 0; i < values.length; ) {
+                ensure(4);
+                int count = Math.min(values.length - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, i, count);
+                buffer.position(buffer.position() + 4 * count);
+                i += count;
+            }
+        }
+
+        // Flushes everything, then appends the checksum
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Reads a channel through memory-mapped windows, keeping a running checksum of
+    // everything read
+    private static class Reader {
+        private FileChannel channel;
+        private long size;
+        // The file offset of the current window
+        private long windowStart = 0;
+        private MappedByteBuffer window;
+        private CRC32C checksum = new CRC32C();
+        // How much of the current window has been added to the checksum
+        private int checked = 0;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        // Reads a string as its length, then its UTF-8 bytes
+        String getString(String filename) throws IOException {
+            int length = getInt();
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Corrupt graph snapshot: " + filename);
+            }
+            return new String(getBytes(length), StandardCharsets.UTF_8);
+        }
+
+        // The number of bytes after the current position
+        long remaining() {
+            return size - windowStart - window.position();
+        }
+
+        long getLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        byte[] getBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; ) {
+                ensure(1);
+                int count = Math.min(length - i, window.remaining());
+                window.get(bytes, i, count);
+                i += count;
+            }
+            return bytes;
+        }
+
+        int[] getInts(int length) throws IOException {
+            int[] values = new int[length];
+            for (int i = 0; i < length; ) {
+                ensure(4);
+                int count = Math.min(length - i, window.remaining() / 4);
+                window.asIntBuffer().get(values, i, count);
+                window.position(window.position() + 4 * count);
+                i += count;
+            }
+            return values;
+        }
+
+        // Checks the stored checksum against the checksum of everything read so far,
+        // which must be everything but the checksum itself
+        void verifyChecksum(String filename) throws IOException {
+            if (windowStart + window.position() != size - 8) {
+                throw new IOException("Corrupt graph snapshot: " + filename);
+            }
+            updateChecksum();
+            long expected = checksum.getValue();
+            if (getLong() != expected) {
+                throw new IOException("Graph snapshot failed its checksum: " + filename);
+            }
+        }
+
+        // Makes sure the current window has at least 'bytes' unread bytes, moving the
+        // window forward if it doesn't
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return;
+            }
+            long position = windowStart + window.position();
+            if (size - position < bytes) {
+                throw new IOException("Unexpected end of graph snapshot");
+            }
+            updateChecksum();
+            map(position);
+        }
+
+        private void updateChecksum() {
+            ByteBuffer unchecked = window.duplicate();
+            unchecked.position(checked).limit(window.position());
+            checksum.update(unchecked);
+            checked = window.position();
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+            checked = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * The GraphStore serves queries from the current snapshot of a graph while newer snapshots are
+ * loaded in the background.
+ * <p>
+ * A snapshot is a frozen GraphProcessor (see GraphProcessor.freeze): its edges can't change, so
+ * any number of threads can query it at once without locking. reload() builds the next snapshot
+ * on a background thread and then publishes it with a single atomic swap, so a query sees either
+ * the old graph or the new one, never a mix of the two. A query that started on the old snapshot
+ * finishes on it, and the old snapshot can be garbage collected once the last such query returns.
+ */
+public class GraphStore {
+    private final AtomicReference<GraphProcessor> current;
+
+    // Builds snapshots one at a time, in the order the reloads were asked for, so an older
+    // graph never replaces a newer one
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GraphStore loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param graphData The absolute path of a file that stores a directed graph, read and frozen
+     *                  as the first snapshot
+     */
+    public GraphStore(String graphData) throws IOException {
+        this(new GraphProcessor(graphData));
+    }
+
+    /**
+     * @param graph The first snapshot. It is frozen, and must not be changed by anyone else.
+     */
+    public GraphStore(GraphProcessor graph) {
+        graph.freeze();
+        current = new AtomicReference<>(graph);
+    }
+
+    /**
+     * @return The current snapshot. Queries that need to see the same graph throughout should
+     * keep using the snapshot this returns rather than calling current() again.
+     */
+    public GraphProcessor current() {
+        return current.get();
+    }
+
+    /**
+     * Runs a query on the current snapshot
+     *
+     * @param query For example g -> g.bfsPath(u, v)
+     * @return What the query returned
+     */
+    public <T> T query(Function<GraphProcessor, T> query) {
+        return query.apply(current.get());
+    }
+
+    /**
+     * Reads graphData in the background, and publishes it as the current snapshot once it has
+     * been read and frozen. Queries keep using the current snapshot until then.
+     *
+     * @param graphData The absolute path of a file that stores a directed graph
+     * @return Completes with the new snapshot once it is published, or exceptionally if it
+     * couldn't be read, in which case the current snapshot stays
+     */
+    public CompletableFuture<GraphProcessor> reload(String graphData) {
+        return reload(() -> new GraphProcessor(graphData));
+    }
+
+    /**
+     * Builds a graph in the background, for example from a binary snapshot or with
+     * GraphProcessor(graphData, true), and publishes it once it has been built and frozen
+     *
+     * @param build Builds the new graph
+     * @return See reload(graphData)
+     */
+    public CompletableFuture<GraphProcessor> reload(Callable<GraphProcessor> build) {
+        CompletableFuture<GraphProcessor> published = new CompletableFuture<>();
+        loader.execute(() -> {
+            try {
+                GraphProcessor graph = build.call();
+                publish(graph);
+                published.complete(graph);
+            } catch (Throwable e) {
+                published.completeExceptionally(e);
+            }
+        });
+        return published;
+    }
+
+    /**
+     * Freezes graph and makes it the current snapshot straight away
+     *
+     * @return The snapshot it replaced
+     */
+    public GraphProcessor publish(GraphProcessor graph) {
+        graph.freeze();
+        return current.getAndSet(graph);
+    }
+}
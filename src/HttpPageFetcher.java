@@ -0,0 +1,317 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Fetches pages over HTTP with a single java.net.http.HttpClient, which keeps connections alive
+ * between requests and uses HTTP/2 where the server supports it, so requests to the same host
+ * share a connection instead of opening one each.
+ * <p>
+ * Pages are requested gzip-compressed, and streamed and decompressed as they are read, so the
+ * caller can work on a page while it downloads. The timeout bounds each attempt at a page as a
+ * whole, body included: when it runs out, the body is closed under the reader, so a server that
+ * stalls in the middle of a page can't hold up a crawler thread. Every request first waits for
+ * the politeness policy. Requests that time out (before or during the body), fail to connect, or
+ * get a 429 or 5xx response are retried after a backoff that doubles each time (or the server's
+ * Retry-After, if it is longer); other errors fail straight away. A 404 or 410 is a
+ * FileNotFoundException.
+ */
+public class HttpPageFetcher implements PageFetcher {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    public static final int DEFAULT_RETRIES = 3;
+    public static final Duration DEFAULT_BACKOFF = Duration.ofMillis(500);
+
+    private static final String USER_AGENT = "WikiCrawler/1.0 (Java HttpClient)";
+
+    // Closes the bodies of pages that run out of time
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "HttpPageFetcher deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Most pages arrive in time, and their deadlines are cancelled
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    private final HttpClient client;
+    private final PolitenessPolicy politenessPolicy;
+    private final Duration timeout;
+    private final int retries;
+    private final Duration backoff;
+
+    public HttpPageFetcher() {
+        this(new PolitenessPolicy());
+    }
+
+    public HttpPageFetcher(PolitenessPolicy politenessPolicy) {
+        this(politenessPolicy, DEFAULT_TIMEOUT, DEFAULT_RETRIES, DEFAULT_BACKOFF);
+    }
+
+    /**
+     * @param politenessPolicy Limits the rate of requests to each host
+     * @param timeout          How long to wait for each attempt at a page, from connecting until
+     *                         the whole body has arrived
+     * @param retries          How many times to retry a request that failed in a way that might
+     *                         not happen again
+     * @param backoff          How long to wait before the first retry
+     */
+    public HttpPageFetcher(PolitenessPolicy politenessPolicy, Duration timeout, int retries, Duration backoff) {
+        this.politenessPolicy = politenessPolicy;
+        this.timeout = timeout;
+        this.retries = retries;
+        this.backoff = backoff;
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw (MalformedURLException) new MalformedURLException("Malformed url: " + url).initCause(e);
+        }
+        // HttpRequest only takes http and https urls, and the politeness policy needs a host
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+                || uri.getHost() == null) {
+            throw new MalformedURLException("Malformed url: " + url);
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept-Encoding", "gzip, deflate")
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build();
+        PageStream page = new PageStream(url, uri.getHost(), request);
+        page.connect();
+        return page;
+    }
+
+    // The body of a page, decompressed as it arrives. Each attempt at the page has a deadline, at
+    // which its body is closed, failing any read that is waiting for it. A read that fails that
+    // way requests the page again, if there are retries left, and skips the bytes already read.
+    private class PageStream extends InputStream {
+        private final String url;
+        private final String host;
+        private final HttpRequest request;
+        private int attempt = 0;
+        // The current attempt's response body, as sent and decompressed
+        private InputStream rawBody;
+        private InputStream body;
+        private ScheduledFuture<?> deadline;
+        private volatile boolean timedOut;
+        // The number of bytes read from the page so far
+        private long position = 0;
+
+        PageStream(String url, String host, HttpRequest request) {
+            this.url = url;
+            this.host = host;
+            this.request = request;
+        }
+
+        // Requests the page until an attempt gets a body, and skips the bytes already read from
+        // earlier attempts
+        void connect() throws IOException {
+            try {
+                for (; ; attempt++) {
+                    politenessPolicy.acquire(host);
+                    long waitMillis = backoff.toMillis() << Math.min(attempt, 20);
+                    long deadlineNanos = System.nanoTime() + timeout.toNanos();
+                    HttpResponse<InputStream> response;
+                    try {
+                        response = headers(deadlineNanos);
+                    } catch (IOException e) {
+                        // Timeouts, failures to connect and dropped connections
+                        if (attempt == retries) {
+                            throw e;
+                        }
+                        backOff(waitMillis);
+                        continue;
+                    }
+                    int status = response.statusCode();
+                    if (status == 200) {
+                        try {
+                            startBody(response, deadlineNanos);
+                            return;
+                        } catch (HttpTimeoutException e) {
+                            if (attempt == retries) {
+                                throw e;
+                            }
+                            backOff(waitMillis);
+                            continue;
+                        }
+                    }
+                    response.body().close();
+                    if (status == 404 || status == 410) {
+                        throw new FileNotFoundException("HTTP " + status + " for " + url);
+                    }
+                    if (attempt == retries || (status != 429 && status < 500)) {
+                        throw new IOException("HTTP " + status + " for " + url);
+                    }
+                    backOff(Math.max(waitMillis, retryAfterMillis(response)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while fetching " + url);
+            }
+        }
+
+        // Sets the deadline at which the response's body is closed, and skips to where the last
+        // attempt left off
+        private void startBody(HttpResponse<InputStream> response, long deadlineNanos) throws IOException {
+            rawBody = response.body();
+            timedOut = false;
+            InputStream expiring = rawBody;
+            deadline = DEADLINES.schedule(() -> {
+                timedOut = true;
+                closeQuietly(expiring);
+            }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            try {
+                body = decode(response);
+                body.skipNBytes(position);
+            } catch (IOException e) {
+                deadline.cancel(false);
+                closeQuietly(rawBody);
+                throw timedOut ? timedOut() : e;
+            }
+        }
+
+        // Sends the request and waits for the response's headers until the deadline
+        private HttpResponse<InputStream> headers(long deadlineNanos) throws IOException, InterruptedException {
+            CompletableFuture<HttpResponse<InputStream>> future =
+                    client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            try {
+                return future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Aborts the exchange
+                future.cancel(true);
+                throw timedOut();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Couldn't fetch " + url, cause);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                try {
+                    int n = body.read(b, off, len);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                } catch (IOException e) {
+                    if (!timedOut) {
+                        throw e;
+                    }
+                    closeQuietly(rawBody);
+                    if (attempt == retries) {
+                        throw timedOut();
+                    }
+                }
+                try {
+                    backOff(backoff.toMillis() << Math.min(attempt, 20));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while fetching " + url);
+                }
+                attempt++;
+                connect();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            deadline.cancel(false);
+            body.close();
+        }
+
+        private HttpTimeoutException timedOut() {
+            return new HttpTimeoutException("Timed out after " + timeout + " fetching " + url);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // It is being abandoned
+        }
+    }
+
+    // Sleeps for waitMillis plus up to half again, so that threads that failed together
+    // don't all retry together
+    private static void backOff(long waitMillis) throws InterruptedException {
+        Thread.sleep(waitMillis + ThreadLocalRandom.current().nextLong(waitMillis / 2 + 1));
+    }
+
+    // Decompresses the response's body if it was sent compressed. Brotli isn't asked for,
+    // since the JDK can't decode it.
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim();
+        InputStream body = response.body();
+        switch (encoding.toLowerCase()) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body, 1 << 16);
+            case "deflate":
+                return new InflaterInputStream(body);
+            case "identity":
+                return body;
+            default:
+                body.close();
+                throw new IOException("Unsupported Content-Encoding " + encoding + " for " + response.uri());
+        }
+    }
+
+    // The response's Retry-After, when given in seconds, or else 0
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        Optional<String> retryAfter = response.headers().firstValue("Retry-After");
+        try {
+            return retryAfter.isPresent() ? 1000 * Long.parseLong(retryAfter.get().trim()) : 0;
+        } catch (NumberFormatException e) {
+            // An HTTP date
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds the wiki links of a page in a single pass, either over its text or over its UTF-8 bytes
+ * as they arrive from the network, so links can be extracted while the page is still
+ * downloading.
+ * <p>
+ * It finds the links WikiCrawler.extractLinks' regular expressions used to, except that a link
+ * can't span lines: after the first "&lt;p&gt;" or "&lt;P&gt;", every
+ * &lt;a[ \r\n]+href[ \r\n]*=[ \r\n]*"(/wiki/[^#:\r\n]*?)", in order. Like the regex, a tag
+ * that doesn't match is retried from the character after its '&lt;', so nothing is skipped.
+ * Only the links themselves are copied. The markup that is
+ * matched is ASCII, and bytes of multi-byte UTF-8 characters are never ASCII, so scanning the
+ * bytes finds the same links as scanning the decoded text.
+ */
+class LinkScanner {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    // The page is either chars, or bytes read from 'in' into a buffer
+    private final CharSequence chars;
+    private final InputStream in;
+    private byte[] bytes;
+
+    // The window of the page in memory is [0, limit), and the next character is at pos
+    private int pos = 0;
+    private int limit;
+    // The start of the tag being matched, which stays in the buffer until the match is
+    // over, or -1
+    private int mark = -1;
+
+    private final ArrayList<String> links = new ArrayList<>();
+
+    private LinkScanner(CharSequence chars, InputStream in) {
+        this.chars = chars;
+        this.in = in;
+        if (in != null) {
+            bytes = new byte[BUFFER_SIZE];
+            limit = 0;
+        } else {
+            limit = chars.length();
+        }
+    }
+
+    /**
+     * @return The links of the page, in the order they appear
+     */
+    static ArrayList<String> scan(CharSequence doc) {
+        try {
+            return new LinkScanner(doc, null).scan();
+        } catch (IOException e) {
+            // Only reading a stream can fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the page from in until its end, a buffer at a time. The stream isn't closed.
+     *
+     * @return The links of the page, in the order they appear
+     */
+    static ArrayList<String> scan(InputStream in) throws IOException {
+        return new LinkScanner(null, in).scan();
+    }
+
+    private ArrayList<String> scan() throws IOException {
+        // Skip to just after the first <p> or <P>
+        int c = next();
+        while (true) {
+            if (c < 0) {
+                return links;
+            }
+            if (c != '<') {
+                c = next();
+                continue;
+            }
+            c = next();
+            if (c == 'p' || c == 'P') {
+                c = next();
+                if (c == '>') {
+                    break;
+                }
+            }
+        }
+
+        while ((c = next()) >= 0) {
+            if (c == '<') {
+                mark = pos - 1;
+                if (!matchLink()) {
+                    // Retry from the character after the '<'
+                    pos = mark + 1;
+                }
+                mark = -1;
+            }
+        }
+        return links;
+    }
+
+    // Matches the rest of <a href="/wiki/..." after the '<', and adds the link if it matches
+    private boolean matchLink() throws IOException {
+        if (next() != 'a' || !isSpace(next())) {
+            return false;
+        }
+        int c;
+        do {
+            c = next();
+        } while (isSpace(c));
+        if (c != 'h' || next() != 'r' || next() != 'e' || next() != 'f') {
+            return false;
+        }
+        do {
+            c = next();
+        } while (isSpace(c));
+        if (c != '=') {
+            return false;
+        }
+        do {
+            c = next();
+        } while (isSpace(c));
+        if (c != '"') {
+            return false;
+        }
+
+        // Measured from the mark, which stays put when the buffer is refilled
+        int linkStart = pos - mark;
+        if (next() != '/' || next() != 'w' || next() != 'i' || next() != 'k' || next() != 'i' || next() != '/') {
+            return false;
+        }
+        while ((c = next()) != '"') {
+            if (c < 0 || c == '#' || c == ':' || c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        links.add(text(mark + linkStart, pos - 1));
+        return true;
+    }
+
+    // The next character or byte, or -1 at the end of the page
+    private int next() throws IOException {
+        if (pos < limit) {
+            return chars != null ? chars.charAt(pos++) : bytes[pos++] & 0xFF;
+        }
+        return in != null && fill() ? bytes[pos++] & 0xFF : -1;
+    }
+
+    // Reads more bytes into the buffer, keeping those from the mark on
+    private boolean fill() throws IOException {
+        int keep = mark >= 0 ? mark : limit;
+        if (keep > 0) {
+            System.arraycopy(bytes, keep, bytes, 0, limit - keep);
+            limit -= keep;
+            pos -= keep;
+            if (mark >= 0) {
+                mark = 0;
+            }
+        }
+        if (limit == bytes.length) {
+            // A tag longer than the buffer
+            bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+        }
+        int n = in.read(bytes, limit, bytes.length - limit);
+        if (n <= 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private String text(int start, int end) {
+        return chars != null ? chars.subSequence(start, end).toString()
+                : new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r';
+    }
+}
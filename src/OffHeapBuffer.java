@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A growable array of bytes outside the Java heap, read and written as ints, longs or bytes at
+ * 64-bit indexes. The bytes are either direct memory or a memory-mapped file.
+ * <p>
+ * A ByteBuffer can't hold more than 2 GB, so the bytes are split into segments of SEGMENT_BYTES,
+ * each its own buffer. Segments are a multiple of 8 bytes, so an int or long never straddles
+ * two segments. Numbers are little-endian, the native order of the machines this runs on.
+ */
+class OffHeapBuffer implements GraphSearches.IntArray {
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT_BYTES = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_BYTES - 1;
+
+    // The backing file, or null for direct memory
+    private final Path file;
+    private final boolean readOnly;
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    // The number of bytes the segments hold
+    private long capacity = 0;
+
+    private OffHeapBuffer(Path file, boolean readOnly) {
+        this.file = file;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * @param bytes The initial capacity
+     * @param file  The file to map, which is created or overwritten, or null for direct memory
+     */
+    static OffHeapBuffer create(long bytes, Path file) throws IOException {
+        OffHeapBuffer buffer = new OffHeapBuffer(file, false);
+        if (file != null) {
+            Files.deleteIfExists(file);
+            Files.createFile(file);
+        }
+        buffer.ensureCapacity(bytes);
+        return buffer;
+    }
+
+    /**
+     * Maps the first 'bytes' bytes of an existing file, read-only
+     */
+    static OffHeapBuffer open(Path file, long bytes) throws IOException {
+        if (Files.size(file) < bytes) {
+            throw new IOException("Off-heap graph file is too short: " + file);
+        }
+        OffHeapBuffer buffer = new OffHeapBuffer(file, true);
+        buffer.map(bytes);
+        return buffer;
+    }
+
+    /**
+     * Grows the buffer to hold at least 'bytes' bytes, keeping its contents. Direct buffers grow
+     * to double their capacity, so that filling a buffer an element at a time takes amortized
+     * constant time.
+     */
+    void ensureCapacity(long bytes) throws IOException {
+        if (bytes <= capacity) {
+            return;
+        }
+        long newCapacity = Math.max(bytes, Math.min(2 * capacity, capacity + SEGMENT_BYTES));
+        newCapacity = (newCapacity + 7) & ~7L;
+        if (file != null) {
+            map(newCapacity);
+            return;
+        }
+        int numSegments = (int) ((newCapacity + SEGMENT_BYTES - 1) >>> SEGMENT_BITS);
+        ByteBuffer[] newSegments = new ByteBuffer[numSegments];
+        for (int s = 0; s < numSegments; s++) {
+            int size = (int) Math.min(SEGMENT_BYTES, newCapacity - ((long) s << SEGMENT_BITS));
+            if (s < segments.length && segments[s].capacity() == size) {
+                newSegments[s] = segments[s];
+                continue;
+            }
+            newSegments[s] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+            if (s < segments.length) {
+                ByteBuffer old = segments[s].duplicate();
+                old.clear();
+                newSegments[s].put(old);
+                newSegments[s].clear();
+            }
+        }
+        segments = newSegments;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Shrinks a file-backed buffer, and its file, to 'bytes' bytes once it has been filled.
+     * Direct buffers keep their capacity.
+     */
+    void truncate(long bytes) throws IOException {
+        if (file == null || bytes >= capacity) {
+            return;
+        }
+        bytes = (bytes + 7) & ~7L;
+        segments = new ByteBuffer[0];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes);
+        }
+        map(bytes);
+    }
+
+    // Maps the file's first 'bytes' bytes, extending the file if it is shorter
+    private void map(long bytes) throws IOException {
+        int numSegments = (int) ((bytes + SEGMENT_BYTES - 1) >>> SEGMENT_BITS);
+        ByteBuffer[] newSegments = new ByteBuffer[numSegments];
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        try (FileChannel channel = readOnly ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            for (int s = 0; s < numSegments; s++) {
+                long start = (long) s << SEGMENT_BITS;
+                newSegments[s] = channel.map(mode, start, Math.min(SEGMENT_BYTES, bytes - start))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        segments = newSegments;
+        capacity = bytes;
+    }
+
+    // Elements are addressed by index, not byte offset: int 'i' is at byte 4 * i
+
+    @Override
+    public int getInt(long index) {
+        long offset = index << 2;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    @Override
+    public void putInt(long index, int value) {
+        long offset = index << 2;
+        segments[(int) (offset >>> SEGMENT_BITS)].putInt((int) (offset & SEGMENT_MASK), value);
+    }
+
+    long getLong(long index) {
+        long offset = index << 3;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    void putLong(long index, long value) {
+        long offset = index << 3;
+        segments[(int) (offset >>> SEGMENT_BITS)].putLong((int) (offset & SEGMENT_MASK), value);
+    }
+
+    byte getByte(long offset) {
+        return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    void putByte(long offset, byte value) {
+        segments[(int) (offset >>> SEGMENT_BITS)].put((int) (offset & SEGMENT_MASK), value);
+    }
+
+    // Sets 'count' ints starting at int 'index' to value
+    void fillInts(long index, long count, int value) {
+        for (long i = index; i < index + count; i++) {
+            putInt(i, value);
+        }
+    }
+}
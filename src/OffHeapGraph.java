@@ -0,0 +1,666 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A read-only graph kept entirely outside the Java heap, for graphs too big for the heap and
+ * for services that can't afford long GC pauses. It answers the same queries as GraphProcessor
+ * (outDegree, inDegree, bfsPath, and the SCC queries) with the same results, and runs the same
+ * searches (see GraphSearches) over its own storage.
+ * <p>
+ * The adjacency, its reverse, the component index and the vertex dictionary are all stored in
+ * OffHeapBuffers: either direct memory, or memory-mapped files in a directory. Loading streams
+ * the edge list, so the heap only ever holds one line of it, and every intermediate array is
+ * off-heap too (in temporary files, for a file-backed graph). A file-backed graph can be opened
+ * again later with open(), which maps the files without reading them.
+ * <p>
+ * The vertex dictionary is an open-addressing hash table of vertex ids, keyed by the UTF-8 bytes
+ * of the names, so no String exists for a vertex until a query returns one. Direct memory is
+ * limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size; mapped files are
+ * only limited by the address space.
+ */
+public class OffHeapGraph {
+    private static final String ERR_MESSAGE = "Incorrect input file format!";
+
+    // The first bytes of the file describing a file-backed graph, and its format version
+    private static final int MAGIC = 0x4F484750;
+    private static final int VERSION = 1;
+    private static final String META_FILE = "graph.meta";
+
+    // The directory of a file-backed graph, or null for direct memory
+    private final Path directory;
+
+    private int numVertices = 0;
+    private long numEdges = 0;
+    private int numComponents = 0;
+    private int largestComponentSize = 0;
+
+    // Vertex dictionary. The name of vertex 'v' is the UTF-8 bytes names[nameStart[v]] ...
+    // names[nameStart[v + 1] - 1] (nameStart holds longs), and 'table' is an open-addressing
+    // hash table of tableSlots ints, each a vertex id + 1 (0 marks an empty slot)
+    private OffHeapBuffer names;
+    private OffHeapBuffer nameStart;
+    private OffHeapBuffer table;
+    private long nameBytes = 0;
+    private int tableSlots = 1 << 10;
+
+    // Compressed-sparse-row adjacency, with long offsets so a graph can have more than 2^31
+    // edges: the children of vertex 'v' are targets[offsets[v]] ... targets[offsets[v + 1] - 1]
+    private OffHeapBuffer offsets;
+    private OffHeapBuffer targets;
+    // The same adjacency with every edge reversed
+    private OffHeapBuffer reverseOffsets;
+    private OffHeapBuffer reverseTargets;
+
+    // Component index: componentOf[v] is the SCC containing vertex 'v', and the members of
+    // component 'c' are componentMembers[componentOffsets[c]] ... componentMembers[componentOffsets[c + 1] - 1]
+    private OffHeapBuffer componentOf;
+    private OffHeapBuffer componentOffsets;
+    private OffHeapBuffer componentMembers;
+
+    private final GraphAdjacency adjacency = new BufferAdjacency();
+
+    // Scratch space for bfsPath, created on first use. A search takes one from the pool for
+    // its duration, so concurrent queries never share one.
+    private ConcurrentLinkedQueue<GraphSearches.BfsSearch> searches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Reads a graph into direct memory
+     *
+     * @param graphData The absolute path of a file that stores a directed graph
+     */
+    public OffHeapGraph(String graphData) throws IOException {
+        this(graphData, null);
+    }
+
+    /**
+     * Reads a graph into memory-mapped files in a directory, replacing any graph already there.
+     * The graph can be opened again with open(directory).
+     *
+     * @param graphData The absolute path of a file that stores a directed graph
+     * @param directory The directory for the graph's files (created if needed), or null for
+     *                  direct memory
+     */
+    public OffHeapGraph(String graphData, String directory) throws IOException {
+        this.directory = (directory == null) ? null : Paths.get(directory);
+        if (this.directory != null) {
+            Files.createDirectories(this.directory);
+            Files.deleteIfExists(this.directory.resolve(META_FILE));
+        }
+        OffHeapBuffer edges = readEdges(graphData);
+        initAdjacency(edges);
+        edges = null;
+        discard("edges");
+        initReverseGraph();
+        initSCC();
+        initComponentIndex();
+        if (this.directory != null) {
+            writeMeta();
+        }
+    }
+
+    private OffHeapGraph(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens a graph saved in a directory by OffHeapGraph(graphData, directory). The files are
+     * mapped read-only, so opening takes no time however big the graph is.
+     *
+     * @param directory The directory the graph was saved to
+     */
+    public static OffHeapGraph open(String directory) throws IOException {
+        OffHeapGraph graph = new OffHeapGraph(Paths.get(directory));
+        Path meta = graph.directory.resolve(META_FILE);
+        if (!Files.exists(meta)) {
+            throw new IOException("No off-heap graph in " + directory);
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(meta))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported off-heap graph in " + directory);
+            }
+            graph.numVertices = in.readInt();
+            graph.numEdges = in.readLong();
+            graph.numComponents = in.readInt();
+            graph.largestComponentSize = in.readInt();
+            graph.nameBytes = in.readLong();
+            graph.tableSlots = in.readInt();
+        }
+        long vertices = graph.numVertices;
+        graph.names = graph.openFile("names", graph.nameBytes);
+        graph.nameStart = graph.openFile("nameStart", 8 * (vertices + 1));
+        graph.table = graph.openFile("table", 4L * graph.tableSlots);
+        graph.offsets = graph.openFile("offsets", 8 * (vertices + 1));
+        graph.targets = graph.openFile("targets", 4 * graph.numEdges);
+        graph.reverseOffsets = graph.openFile("reverseOffsets", 8 * (vertices + 1));
+        graph.reverseTargets = graph.openFile("reverseTargets", 4 * graph.numEdges);
+        graph.componentOf = graph.openFile("componentOf", 4 * vertices);
+        graph.componentOffsets = graph.openFile("componentOffsets", 4L * (graph.numComponents + 1));
+        graph.componentMembers = graph.openFile("componentMembers", 4 * vertices);
+        return graph;
+    }
+
+    /**
+     * @return The number of vertices in the graph. Vertex ids run from 0 to numVertices() - 1,
+     * in the order the vertices first appear in the graph file, as in GraphProcessor.
+     */
+    public int numVertices() {
+        return numVertices;
+    }
+
+    /**
+     * @return The number of edges in the graph, not counting duplicates
+     */
+    public long numEdges() {
+        return numEdges;
+    }
+
+    /**
+     * @param id The id of a vertex, from 0 to numVertices() - 1
+     * @return The vertex with that id
+     */
+    public String vertexName(int id) {
+        long start = nameStart.getLong(id);
+        byte[] name = new byte[(int) (nameStart.getLong(id + 1) - start)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = names.getByte(start + i);
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param v Represents a vertex in the graph
+     * @return The out degree of v, or 0 if v isn't in the graph
+     */
+    public int outDegree(String v) {
+        int id = vertexId(v);
+        return (id < 0) ? 0 : (int) (offsets.getLong(id + 1) - offsets.getLong(id));
+    }
+
+    /**
+     * @param v Represents a vertex in the graph
+     * @return The in degree of v, or 0 if v isn't in the graph
+     */
+    public int inDegree(String v) {
+        int id = vertexId(v);
+        return (id < 0) ? 0 : (int) (reverseOffsets.getLong(id + 1) - reverseOffsets.getLong(id));
+    }
+
+    /**
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     * @return 'true' if u and v belong to the same SCC; otherwise returns 'false'
+     */
+    public boolean sameComponent(String u, String v) {
+        int uId = vertexId(u);
+        int vId = vertexId(v);
+        return uId >= 0 && vId >= 0 && componentOf.getInt(uId) == componentOf.getInt(vId);
+    }
+
+    /**
+     * @param v Represents a vertex in the graph
+     * @return All the vertices that belong to the same SCC as v (including v), in id order
+     */
+    public ArrayList<String> componentVertices(String v) {
+        int id = vertexId(v);
+        if (id < 0) {
+            return new ArrayList<>();
+        }
+        int component = componentOf.getInt(id);
+        int start = componentOffsets.getInt(component);
+        int end = componentOffsets.getInt(component + 1);
+        ArrayList<String> vertices = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            vertices.add(vertexName(componentMembers.getInt(i)));
+        }
+        return vertices;
+    }
+
+    /**
+     * @param v Represents a vertex in the graph
+     * @return The id of the SCC containing v, numbered as in GraphProcessor, or -1 if v isn't in the graph
+     */
+    public int componentId(String v) {
+        int id = vertexId(v);
+        return (id < 0) ? -1 : componentOf.getInt(id);
+    }
+
+    /**
+     * @return The size of the largest component
+     */
+    public int largestComponent() {
+        return largestComponentSize;
+    }
+
+    /**
+     * @return The number of Strongly Connected Components
+     */
+    public int numComponents() {
+        return numComponents;
+    }
+
+    /**
+     * @param u Represents a vertex in the graph
+     * @param v Represents a vertex in the graph
+     * @return The BFS path from u to v, following the same rules as GraphProcessor.bfsPath:
+     * an empty list if there is none, and [u, v] if u and v are the same vertex
+     */
+    public ArrayList<String> bfsPath(String u, String v) {
+        ArrayList<String> pathList = new ArrayList<>();
+        int source = vertexId(u);
+        if (source < 0) {
+            return pathList;
+        }
+        if (u.equals(v)) {
+            pathList.add(u);
+            pathList.add(v);
+            return pathList;
+        }
+        int target = vertexId(v);
+        if (target < 0) {
+            return pathList;
+        }
+
+        GraphSearches.BfsSearch search = searches.poll();
+        if (search == null) {
+            search = newSearch();
+        }
+        int[] path = search.path(source, target);
+        searches.offer(search);
+        if (path != null) {
+            for (int vertex : path) {
+                pathList.add(vertexName(vertex));
+            }
+        }
+        return pathList;
+    }
+
+    // A BfsSearch over the graph, with its scratch space in direct memory
+    private GraphSearches.BfsSearch newSearch() {
+        try {
+            return new GraphSearches.BfsSearch(adjacency, OffHeapBuffer.create(4L * numVertices, null),
+                    OffHeapBuffer.create(4L * numVertices, null), OffHeapBuffer.create(4L * numVertices, null));
+        } catch (IOException e) {
+            // Only file-backed buffers can fail to be created
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The adjacency, for GraphSearches
+    private class BufferAdjacency implements GraphAdjacency {
+        @Override
+        public int numVertices() {
+            return numVertices;
+        }
+
+        @Override
+        public long childStart(int v) {
+            return offsets.getLong(v);
+        }
+
+        @Override
+        public long childEnd(int v) {
+            return offsets.getLong(v + 1);
+        }
+
+        @Override
+        public int child(long edge) {
+            return targets.getInt(edge);
+        }
+
+        @Override
+        public long parentStart(int v) {
+            return reverseOffsets.getLong(v);
+        }
+
+        @Override
+        public long parentEnd(int v) {
+            return reverseOffsets.getLong(v + 1);
+        }
+
+        @Override
+        public int parent(long edge) {
+            return reverseTargets.getInt(edge);
+        }
+    }
+
+    // Returns the id of the vertex with the given name, or -1 if it isn't in the graph
+    private int vertexId(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = tableSlots - 1;
+        for (int slot = mix(hash(bytes, 0, bytes.length)) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table.getInt(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            if (sameName(entry - 1, bytes, 0, bytes.length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // Streams the edge list file, interning its vertices into the dictionary, and returns
+    // its edges as (from, to) pairs of ints
+    private OffHeapBuffer readEdges(String graphData) throws IOException {
+        names = createFile("names", 1 << 16);
+        nameStart = createFile("nameStart", 8 << 10);
+        table = createFile("table", 4L * tableSlots);
+        OffHeapBuffer edges = scratch("edges", 8 << 10);
+
+        try (InputStream in = new FileInputStream(graphData)) {
+            byte[] buffer = new byte[1 << 16];
+            int length = 0;
+            int scanned = 0;
+            boolean header = true;
+            while (true) {
+                int read = in.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    if (length > 0) {
+                        edges = parseLine(buffer, 0, length, header, edges);
+                    }
+                    break;
+                }
+                length += read;
+                int lineStart = 0;
+                for (int i = scanned; i < length; i++) {
+                    if (buffer[i] == '\n') {
+                        edges = parseLine(buffer, lineStart, i, header, edges);
+                        header = false;
+                        lineStart = i + 1;
+                    }
+                }
+                // Move the unfinished line to the front, growing the buffer for a line longer than it
+                System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+                length -= lineStart;
+                scanned = length;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+            }
+        }
+        names.truncate(nameBytes);
+        nameStart.truncate(8 * (numVertices + 1L));
+        return edges;
+    }
+
+    // Parses the vertex count header, or one "from to" line: the line is trimmed, 'from' runs
+    // up to the first space and 'to' is the trimmed rest of the line. Returns the edge buffer.
+    private OffHeapBuffer parseLine(byte[] line, int start, int end, boolean header, OffHeapBuffer edges)
+            throws IOException {
+        while (start < end && (line[start] & 0xff) <= ' ') start++;
+        while (end > start && (line[end - 1] & 0xff) <= ' ') end--;
+        if (header) {
+            // The vertex count is only checked; the dictionary grows as vertices appear
+            try {
+                Integer.parseInt(new String(line, start, end - start, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                System.out.println(ERR_MESSAGE);
+                throw new IOException(ERR_MESSAGE);
+            }
+            return edges;
+        }
+        if (start == end) return edges;
+
+        int split = start;
+        while (split < end && line[split] != ' ') {
+            split++;
+        }
+        if (split == end) {
+            System.out.println(ERR_MESSAGE);
+            throw new IOException(ERR_MESSAGE);
+        }
+        int toStart = split;
+        while ((line[toStart] & 0xff) <= ' ') {
+            toStart++;
+        }
+        int from = intern(line, start, split);
+        int to = intern(line, toStart, end);
+        edges.ensureCapacity(8 * (numEdges + 1));
+        edges.putInt(2 * numEdges, from);
+        edges.putInt(2 * numEdges + 1, to);
+        numEdges++;
+        return edges;
+    }
+
+    // Returns the id of the vertex spelled by bytes [start, end), assigning the next free id
+    // if the vertex hasn't been seen before
+    private int intern(byte[] bytes, int start, int end) throws IOException {
+        int mask = tableSlots - 1;
+        int slot = mix(hash(bytes, start, end)) & mask;
+        while (table.getInt(slot) != 0) {
+            int id = table.getInt(slot) - 1;
+            if (sameName(id, bytes, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = numVertices++;
+        names.ensureCapacity(nameBytes + (end - start));
+        for (int i = start; i < end; i++) {
+            names.putByte(nameBytes++, bytes[i]);
+        }
+        nameStart.ensureCapacity(8 * (id + 2L));
+        nameStart.putLong(id + 1, nameBytes);
+        table.putInt(slot, id + 1);
+        if (2L * numVertices > tableSlots) {
+            rehash();
+        }
+        return id;
+    }
+
+    private boolean sameName(int id, byte[] bytes, int start, int end) {
+        long nameOffset = nameStart.getLong(id);
+        if (nameStart.getLong(id + 1) - nameOffset != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (names.getByte(nameOffset++) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Doubles the hash table, keeping it at most half full. The hashes are computed again
+    // from the names, so the old table isn't needed.
+    private void rehash() throws IOException {
+        tableSlots *= 2;
+        table = createFile("table", 4L * tableSlots);
+        int mask = tableSlots - 1;
+        byte[] name = new byte[64];
+        for (int id = 0; id < numVertices; id++) {
+            long start = nameStart.getLong(id);
+            int length = (int) (nameStart.getLong(id + 1) - start);
+            if (length > name.length) {
+                name = new byte[2 * length];
+            }
+            for (int i = 0; i < length; i++) {
+                name[i] = names.getByte(start + i);
+            }
+            int slot = mix(hash(name, 0, length)) & mask;
+            while (table.getInt(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.putInt(slot, id + 1);
+        }
+    }
+
+    // The same hash as a String of Latin-1 characters would have
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    // Spreads the bits of a String-style hash so that linear probing works well
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    // Builds the compressed-sparse-row adjacency from the edge list. Children keep the order
+    // they appeared in the edge list, and duplicate edges are dropped, as in GraphProcessor.
+    private void initAdjacency(OffHeapBuffer edges) throws IOException {
+        // Counting sort of the edges by their 'from' vertex
+        offsets = createFile("offsets", 8 * (numVertices + 1L));
+        for (long e = 0; e < numEdges; e++) {
+            int from = edges.getInt(2 * e);
+            offsets.putLong(from + 1, offsets.getLong(from + 1) + 1);
+        }
+        for (int v = 0; v < numVertices; v++) {
+            offsets.putLong(v + 1, offsets.getLong(v + 1) + offsets.getLong(v));
+        }
+        targets = createFile("targets", 4 * numEdges);
+        OffHeapBuffer next = scratch("next", 8L * numVertices);
+        for (int v = 0; v < numVertices; v++) {
+            next.putLong(v, offsets.getLong(v));
+        }
+        for (long e = 0; e < numEdges; e++) {
+            int from = edges.getInt(2 * e);
+            long position = next.getLong(from);
+            targets.putInt(position, edges.getInt(2 * e + 1));
+            next.putLong(from, position + 1);
+        }
+        next = null;
+        discard("next");
+
+        // Compact each row in place, skipping children already seen in that row
+        OffHeapBuffer lastSeenIn = scratch("lastSeenIn", 4L * numVertices);
+        lastSeenIn.fillInts(0, numVertices, -1);
+        long write = 0;
+        for (int v = 0; v < numVertices; v++) {
+            long rowStart = offsets.getLong(v);
+            long rowEnd = offsets.getLong(v + 1);
+            offsets.putLong(v, write);
+            for (long i = rowStart; i < rowEnd; i++) {
+                int child = targets.getInt(i);
+                if (lastSeenIn.getInt(child) != v) {
+                    lastSeenIn.putInt(child, v);
+                    targets.putInt(write++, child);
+                }
+            }
+        }
+        offsets.putLong(numVertices, write);
+        numEdges = write;
+        targets.truncate(4 * numEdges);
+        discard("lastSeenIn");
+    }
+
+    private void initReverseGraph() throws IOException {
+        reverseOffsets = createFile("reverseOffsets", 8 * (numVertices + 1L));
+        for (long i = 0; i < numEdges; i++) {
+            int target = targets.getInt(i);
+            reverseOffsets.putLong(target + 1, reverseOffsets.getLong(target + 1) + 1);
+        }
+        for (int v = 0; v < numVertices; v++) {
+            reverseOffsets.putLong(v + 1, reverseOffsets.getLong(v + 1) + reverseOffsets.getLong(v));
+        }
+        reverseTargets = createFile("reverseTargets", 4 * numEdges);
+        OffHeapBuffer next = scratch("next", 8L * numVertices);
+        for (int v = 0; v < numVertices; v++) {
+            next.putLong(v, reverseOffsets.getLong(v));
+        }
+        for (int vertex = 0; vertex < numVertices; vertex++) {
+            for (long i = offsets.getLong(vertex); i < offsets.getLong(vertex + 1); i++) {
+                int target = targets.getInt(i);
+                long position = next.getLong(target);
+                reverseTargets.putInt(position, vertex);
+                next.putLong(target, position + 1);
+            }
+        }
+        discard("next");
+    }
+
+    // Kosaraju's algorithm, which GraphProcessor's SCCHelper runs too, so the components get the
+    // same ids
+    private void initSCC() throws IOException {
+        OffHeapBuffer finishOrder = scratch("finishOrder", 4L * numVertices);
+        OffHeapBuffer stack = scratch("stack", 4L * numVertices);
+        GraphSearches.finishOrder(adjacency, finishOrder, scratch("visited", 4L * numVertices), stack,
+                scratch("nextEdge", 4L * numVertices));
+        discard("visited");
+        discard("nextEdge");
+
+        componentOf = createFile("componentOf", 4L * numVertices);
+        numComponents = GraphSearches.components(adjacency, finishOrder, componentOf, stack);
+        discard("finishOrder");
+        discard("stack");
+    }
+
+    private void initComponentIndex() throws IOException {
+        componentOffsets = createFile("componentOffsets", 4L * (numComponents + 1));
+        for (int v = 0; v < numVertices; v++) {
+            int c = componentOf.getInt(v);
+            componentOffsets.putInt(c + 1, componentOffsets.getInt(c + 1) + 1);
+        }
+        for (int c = 0; c < numComponents; c++) {
+            largestComponentSize = Math.max(largestComponentSize, componentOffsets.getInt(c + 1));
+            componentOffsets.putInt(c + 1, componentOffsets.getInt(c + 1) + componentOffsets.getInt(c));
+        }
+        componentMembers = createFile("componentMembers", 4L * numVertices);
+        OffHeapBuffer next = scratch("next", 4L * numComponents);
+        for (int c = 0; c < numComponents; c++) {
+            next.putInt(c, componentOffsets.getInt(c));
+        }
+        for (int v = 0; v < numVertices; v++) {
+            int c = componentOf.getInt(v);
+            int position = next.getInt(c);
+            componentMembers.putInt(position, v);
+            next.putInt(c, position + 1);
+        }
+        discard("next");
+    }
+
+    private void writeMeta() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve(META_FILE)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numVertices);
+            out.writeLong(numEdges);
+            out.writeInt(numComponents);
+            out.writeInt(largestComponentSize);
+            out.writeLong(nameBytes);
+            out.writeInt(tableSlots);
+        }
+    }
+
+    // A buffer that is part of the graph: the file 'name'.bin, or direct memory
+    private OffHeapBuffer createFile(String name, long bytes) throws IOException {
+        return OffHeapBuffer.create(bytes, (directory == null) ? null : directory.resolve(name + ".bin"));
+    }
+
+    private OffHeapBuffer openFile(String name, long bytes) throws IOException {
+        return OffHeapBuffer.open(directory.resolve(name + ".bin"), bytes);
+    }
+
+    // A buffer only needed while loading: the file 'name'.tmp, or direct memory
+    private OffHeapBuffer scratch(String name, long bytes) throws IOException {
+        return OffHeapBuffer.create(bytes, (directory == null) ? null : directory.resolve(name + ".tmp"));
+    }
+
+    // Deletes the file of a scratch buffer that is no longer used. The mapping itself goes
+    // away once the buffer is garbage collected.
+    private void discard(String name) {
+        if (directory != null) {
+            Path file = directory.resolve(name + ".tmp");
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Some platforms can't delete a file that is still mapped
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fetches the pages the WikiCrawler crawls: HttpPageFetcher fetches them from a web server, and
+ * FilePageFetcher reads them from a local mirror of the wiki. Implementations are called from
+ * several threads at once during a concurrent crawl.
+ */
+public interface PageFetcher {
+    /**
+     * Opens the page at url. The caller closes the stream.
+     *
+     * @param url The absolute url of the page
+     * @return The page's bytes, already decompressed if they were sent compressed
+     * @throws FileNotFoundException If there is no page at url
+     * @throws MalformedURLException If url isn't one the fetcher can fetch
+     * @throws IOException           If the page couldn't be fetched
+     */
+    InputStream open(String url) throws IOException;
+
+    /**
+     * Reads the whole page at url as UTF-8 text
+     *
+     * @see #open(String)
+     */
+    default String fetch(String url) throws IOException {
+        try (InputStream in = open(url)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
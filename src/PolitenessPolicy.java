@@ -0,0 +1,65 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The crawler's "politeness policy": a token bucket per host that limits how fast pages are
+ * requested from it, so that a crawl doesn't overload the servers it visits.
+ * <p>
+ * Each host's bucket refills at requestsPerSecond and holds at most 'burst' tokens, and every
+ * request takes one. A request that finds the bucket empty reserves the next token and waits
+ * for it, so any number of threads sharing the policy are spread evenly over time instead of
+ * waiting in bursts.
+ */
+public class PolitenessPolicy {
+    /**
+     * The default rate, about the average of the old rule of waiting 3 seconds after every 100
+     * requests
+     */
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 30;
+    public static final int DEFAULT_BURST = 10;
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final ConcurrentHashMap<String, TokenBucket> hosts = new ConcurrentHashMap<>();
+
+    public PolitenessPolicy() {
+        this(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST);
+    }
+
+    /**
+     * @param requestsPerSecond The long-run number of requests per second to each host
+     * @param burst             The number of requests a host that has been idle can be sent at once
+     */
+    public PolitenessPolicy(double requestsPerSecond, int burst) {
+        if (!(requestsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("The rate and burst must be positive");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Waits until a request may be sent to host
+     */
+    public void acquire(String host) throws InterruptedException {
+        long waitNanos = hosts.computeIfAbsent(host, h -> new TokenBucket()).reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private class TokenBucket {
+        // Negative once requests are waiting: each waits for the tokens reserved before it
+        private double tokens = burst;
+        private long refilledAt = System.nanoTime();
+
+        // Takes a token, and returns how long to wait for it
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * requestsPerSecond / 1e9);
+            refilledAt = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * 1e9 / requestsPerSecond);
+        }
+    }
+}
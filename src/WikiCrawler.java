@@ -1,9 +1,18 @@
 import java.io.*;
 import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The WikiCrawler class has methods that can be used to crawl Wiki.
@@ -21,77 +30,98 @@ public class WikiCrawler {
 
     // The set of unique web links being crawled
     private HashSet<String> vertices;
-    // The set of unique edges (link from one page to another) that have been discovered
-    private HashSet<Edge> edges;
-    // A counter that keeps track of the order that edges are discovered
-    private int discoveryCount = 0;
+    // The edges (links from one page to another) are written to this file as they are
+    // discovered, one "from to" line each, and copied to fileName once the crawl is over
+    private Path edgesFile;
+    private FileOutputStream edgesOut;
+    private BufferedWriter edgeWriter;
+    // Every vertex, in the order it was found. The BFS queue is frontier[head..].
+    private ArrayList<String> frontier = new ArrayList<>();
+    private int head = 0;
+
+    // The directory crawls are checkpointed to, or null
+    private Path checkpointDirectory = null;
+    private int minPagesBetweenSnapshots = DEFAULT_MIN_PAGES_BETWEEN_SNAPSHOTS;
+
+    /**
+     * The default for setCheckpointDirectory's minPagesBetweenSnapshots
+     */
+    public static final int DEFAULT_MIN_PAGES_BETWEEN_SNAPSHOTS = 1000;
 
     /**
-     * The base url from which all relative urls (wiki pages) are curled.
+     * The default base url from which all relative urls (wiki pages) are curled.
      */
     public static final String BASE_URL = "https://en.wikipedia.org";
+    // The base url this crawler curls from
+    private final String baseUrl;
+    // Fetches the pages, and adheres to the "politeness policy" if they come from a server
+    private final PageFetcher fetcher;
 
-    // The following variables pertain to the "politeness policy"
-    // to avoid overloading the wikipedia servers
-    private int politenessPolicyCounter = 0;
-    private static final int NUM_CURLS_BEFORE_WAITING = 100;
-    private static final int SECONDS_TO_WAIT = 3;
+    // The number of pages a concurrent crawl fetches ahead of the page it is processing,
+    // per fetching thread
+    private static final int FETCHES_PER_THREAD = 4;
 
     // Set to 'true' if you want some status messages printed during the crawl.
     // Can be used for debugging.
     private static final boolean VERBOSE_OUTPUT = false;
 
-    // Represents a directed edge in the web graph -- a link from one page to another
-    private class Edge {
-        String from;
-        String to;
-        int orderDiscovered;
-
-        public Edge(String from, String to, int orderDiscovered) {
-            this.from = from;
-            this.to = to;
-            this.orderDiscovered = orderDiscovered;
-        }
-
-        @Override
-        public String toString() {
-            return from + " " + to;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof Edge)) return false;
-            if (o == this) return true;
-            Edge oEdge = (Edge) o;
-            return oEdge.from.equals(from) && oEdge.to.equals(to);
-        }
-
-        @Override
-        public int hashCode() {
-            return from.hashCode() + to.hashCode();
-        }
-    }
-
-    // Used for sorting an array of Edge objects based on the order the links were discovered
-    private class EdgeComparator implements Comparator<Edge> {
-        @Override
-        public int compare(Edge e1, Edge e2) {
-            return e1.orderDiscovered - e2.orderDiscovered;
-        }
+    /**
+     * @param seedUrl  The relative address of the seed url (within Wiki domain)
+     * @param max      Represents maximum number of pages to be crawled
+     * @param fileName Represents the name of the file the graph will be written to
+     */
+    public WikiCrawler(String seedUrl, int max, String fileName) {
+        this(new HttpPageFetcher(), BASE_URL, seedUrl, max, fileName);
     }
 
     /**
+     * @param fetcher  Fetches the pages: an HttpPageFetcher, or a FilePageFetcher to crawl a local
+     *                 mirror of the wiki at disk speed
+     * @param baseUrl  The url the relative addresses are curled from, for example BASE_URL or a
+     *                 server on "http://localhost:8080"
      * @param seedUrl  The relative address of the seed url (within Wiki domain)
      * @param max      Represents maximum number of pages to be crawled
      * @param fileName Represents the name of the file the graph will be written to
      */
-    public WikiCrawler(String seedUrl, int max, String fileName) {
+    public WikiCrawler(PageFetcher fetcher, String baseUrl, String seedUrl, int max, String fileName) {
+        this.fetcher = fetcher;
+        this.baseUrl = baseUrl;
         this.seedUrl = seedUrl;
         this.max = max;
         this.fileName = fileName;
-        int initialSize = (int) Math.ceil(1.5 * max);
-        vertices = new HashSet<>(initialSize);
-        edges = new HashSet<>(initialSize);
+        vertices = new HashSet<>((int) Math.ceil(1.5 * max));
+    }
+
+    /**
+     * Checkpoints crawls to directory, so that a crawl that stops partway, because the process died,
+     * a page couldn't be fetched or the crawl was interrupted, can be resumed by a crawler with the
+     * same seed url and max.
+     * If the directory has the checkpoint of such a crawl, crawl() resumes it from there and writes
+     * the same file an uninterrupted crawl would have; if it has the checkpoint of a different
+     * crawl, crawl() fails. The checkpoint is deleted once a crawl finishes.
+     * <p>
+     * The checkpoint is a journal, which gets the new edges of each page as soon as the page has
+     * been crawled, and a snapshot of the crawl's vertices, which the journal is compacted into once
+     * it has as many pages as the snapshot (but at least minPagesBetweenSnapshots). The edges are
+     * written to the directory's "crawl.edges" rather than to "fileName.edges".
+     *
+     * @param directory                The directory, which is created if it doesn't exist
+     * @param minPagesBetweenSnapshots The number of pages in the journal that make it worth
+     *                                 compacting into a new snapshot, early in a crawl
+     */
+    public void setCheckpointDirectory(String directory, int minPagesBetweenSnapshots) {
+        this.checkpointDirectory = Paths.get(directory);
+        this.minPagesBetweenSnapshots = minPagesBetweenSnapshots;
+    }
+
+    /**
+     * Checkpoints crawls to directory, compacting the journal into a snapshot no more often than
+     * every DEFAULT_MIN_PAGES_BETWEEN_SNAPSHOTS pages
+     *
+     * @see #setCheckpointDirectory(String, int)
+     */
+    public void setCheckpointDirectory(String directory) {
+        setCheckpointDirectory(directory, DEFAULT_MIN_PAGES_BETWEEN_SNAPSHOTS);
     }
 
     /**
@@ -111,154 +141,404 @@ public class WikiCrawler {
      * @return An ArrayList of Strings consisting of links from doc
      */
     public ArrayList<String> extractLinks(String doc) {
-        ArrayList<String> arr = new ArrayList<>();
-        String content = "";
-
-        // The content to search is everything after the first <p> or <P> tag
-        Matcher matcher = Pattern.compile("<[pP]>").matcher(doc);
-        if (matcher.find()) {
-            content = doc.substring(matcher.start());
-        }
-
-        // Get all valid relative urls and add them to the array arr
-        matcher = Pattern.compile("<a +href *= *\"(/wiki/[^#:]*?)\"")
-                .matcher(content);
-        while (matcher.find()) {
-            arr.add(matcher.group(1));
-        }
-
-        return arr;
+        // A single pass over doc, which finds the same links as the regular expression
+        // <a[ \r\n]+href[ \r\n]*=[ \r\n]*"(/wiki/[^#:\r\n]*?)" after the first <p> or <P>
+        return LinkScanner.scan(doc);
     }
 
     /**
      * This method crawls the wikipedia site using Breadth-First Search, starting at the seed url
      * and constrained by the max number of pages to crawl, which was set by the user in the constructor.
-     * The crawler has a "politeness policy" that waits 3 seconds per 100 requests to avoid overloading
-     * the server. After crawling, it outputs all the edges in the order they were found to the filename
-     * indicated by the user in the constructor.
+     * When crawling a server, the fetcher has a "politeness policy" that limits the rate of requests to
+     * each host to avoid overloading it. The edges are written to the file "fileName.edges" in the order
+     * they are found, and after crawling, the number of vertices and the edges are saved to the filename
+     * indicated by the user in the constructor. Only the vertices are kept in memory.
+     * <p>
+     * A page that doesn't exist has no links. If any other page can't be fetched, even after the
+     * fetcher's retries, the crawl stops with an UncheckedIOException and no file is saved, so that
+     * a checkpointed crawl (see setCheckpointDirectory) can be resumed once the network is back.
      */
     public void crawl() {
-        System.out.println("Beginning crawl of " + BASE_URL + seedUrl);
-        System.out.println("Max number of pages to visit:  " + max);
-        System.out.println("Saving to filename:  " + fileName);
-        BFS(seedUrl);
-        Edge[] edgeArray = hashSetToArray(edges);
-        Arrays.sort(edgeArray, new EdgeComparator());
-        saveToFile(edgeArray, vertices.size());
+        crawl(1);
     }
 
-    // Converts a HashSet of Edge objects to an Edge array
-    private Edge[] hashSetToArray(HashSet<Edge> edgeSet) {
-        Edge[] edgeArr = new Edge[edgeSet.size()];
-        Iterator<Edge> iterator = edgeSet.iterator();
-        int i = 0;
-        while (iterator.hasNext()) {
-            Edge next = iterator.next();
-            edgeArr[i++] = next;
+    /**
+     * Crawls as crawl() does, but fetches up to 'threads' pages at once. The pages are still
+     * processed in breadth-first order, so the output is the same as crawl()'s, only sooner when
+     * requests spend most of their time waiting on the network. The fetcher, and its politeness
+     * policy, is shared by all the threads.
+     *
+     * @param threads The number of pages to fetch at once
+     */
+    public void crawl(int threads) {
+        System.out.println("Beginning crawl of " + baseUrl + seedUrl);
+        System.out.println("Max number of pages to visit:  " + max);
+        System.out.println("Saving to filename:  " + fileName);
+        Checkpoint checkpoint = checkpointDirectory != null ? new Checkpoint() : null;
+        edgesFile = checkpoint != null ? checkpointDirectory.resolve("crawl.edges") : Paths.get(fileName + ".edges");
+        boolean finished;
+        try {
+            finished = BFS(seedUrl, threads, checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write the edges to " + edgesFile
+                    + (checkpoint != null ? " or checkpoint the crawl" : ""), e);
+        } finally {
+            closeEdges();
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+        if (saveToFile(vertices.size())) {
+            if (checkpoint == null) {
+                deleteEdges();
+            } else if (finished) {
+                checkpoint.delete();
+            }
         }
-        return edgeArr;
     }
 
-    // Performs a Bread-First Search to create a web graph, starting at url 'v'
-    private void BFS(String v) {
-        LinkedList<String> queue = new LinkedList<>();
-        HashSet<String> visited = new HashSet<>((int) Math.ceil(1.5 * max));
-
-        queue.add(v);
-        visited.add(v);
+    // Performs a Bread-First Search to create a web graph, starting at url 'v', or from where
+    // the checkpoint left off. With more than one thread, the pages at the front of the queue
+    // are fetched ahead in the background, but their links are still followed in queue order.
+    // Returns 'false' if the crawl was interrupted.
+    private boolean BFS(String v, int threads, Checkpoint checkpoint) throws IOException {
+        frontier.add(v);
         vertices.add(v);
-        while (!queue.isEmpty()) {
-            String u = queue.pop();
-            String urlDoc = curlUrl(u);
-            ArrayList<String> links = extractLinks(urlDoc);
-            for (String link : links) {
-                if (vertices.contains(link)) {
-                    // Add edges to previously-visited pages
-                    if (!u.equals(link)) {
-                        // Prevent self loops
-                        edges.add(new Edge(u, link, discoveryCount++));
+        if (checkpoint != null) {
+            checkpoint.restore();
+        } else {
+            openEdges(0);
+        }
+
+        // fetches holds the links of frontier[head..next)
+        int next = head;
+        ArrayDeque<Future<ArrayList<String>>> fetches = new ArrayDeque<>();
+        ExecutorService fetchers = threads > 1 ? Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "WikiCrawler fetcher");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        try {
+            while (head < frontier.size()) {
+                ArrayList<String> links;
+                if (fetchers == null) {
+                    try {
+                        links = curlLinks(frontier.get(head));
+                    } catch (IOException e) {
+                        throw fetchFailed(frontier.get(head), e);
                     }
-                } else if (vertices.size() < max) {
-                    // Add edges to not-yet-visited pages if we haven't reached the
-                    // max number of vertices yet
-                    vertices.add(link);
-                    edges.add(new Edge(u, link, discoveryCount++));
-                    if (!visited.contains(link)) {
-                        queue.add(link);
-                        visited.add(link);
+                } else {
+                    while (next < frontier.size() && next - head < FETCHES_PER_THREAD * threads) {
+                        String url = frontier.get(next++);
+                        fetches.add(fetchers.submit(() -> curlLinks(url)));
                     }
+                    links = fetches.poll().get();
                 }
+                if (Thread.currentThread().isInterrupted()) {
+                    // The page may have been cut short
+                    throw new InterruptedException();
+                }
+                String u = frontier.get(head++);
+                LinkedHashSet<String> newEdges = followLinks(u, links);
+                if (checkpoint != null) {
+                    checkpoint.pageCrawled(head - 1, u, newEdges);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            System.out.println("Crawl interrupted; saving the pages crawled so far");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw fetchFailed(frontier.get(head), (IOException) e.getCause());
+            }
+            throw new IllegalStateException("Fetching a page failed", e.getCause());
+        } finally {
+            if (fetchers != null) {
+                fetchers.shutdownNow();
             }
         }
     }
 
-    // Saves an array of Edge objects to the file at fileName.
-    // The first line of the file is the number of vertices found.
-    private void saveToFile(Edge[] edges, int numVertices) {
-        BufferedWriter bw = null;
-        FileWriter fw = null;
+    // The crawl stops when a page can't be fetched, rather than carrying on without its links,
+    // so that it can be resumed from its checkpoint
+    private UncheckedIOException fetchFailed(String url, IOException e) {
+        return new UncheckedIOException("Couldn't fetch " + baseUrl + url + "; stopping the crawl", e);
+    }
 
-        try {
-            fw = new FileWriter(fileName);
-            bw = new BufferedWriter(fw);
-            bw.write(Integer.toString(numVertices));
-            bw.write('\n');
-            for (Edge edge : edges) {
-                bw.write(edge.toString());
-                bw.write('\n');
+    // Adds the edges from page u to its links, and returns their targets in the order they were
+    // found. An edge from u can only be found while u is being crawled, so the edges of other
+    // pages don't need to be checked for duplicates.
+    private LinkedHashSet<String> followLinks(String u, ArrayList<String> links) throws IOException {
+        LinkedHashSet<String> newEdges = new LinkedHashSet<>();
+        for (String link : links) {
+            if (vertices.contains(link)) {
+                // Add edges to previously-visited pages
+                if (!u.equals(link) && newEdges.add(link)) {
+                    // Prevent self loops
+                    addEdge(u, link);
+                }
+            } else if (vertices.size() < max) {
+                // Add edges to not-yet-visited pages if we haven't reached the
+                // max number of vertices yet
+                newEdges.add(link);
+                addEdge(u, link);
             }
-            print("Results saved to " + fileName);
+        }
+        return newEdges;
+    }
+
+    // Writes the edge from u to v, and adds v to the queue if it's a new vertex
+    private void addEdge(String u, String v) throws IOException {
+        if (vertices.add(v)) {
+            frontier.add(v);
+        }
+        edgeWriter.write(u);
+        edgeWriter.write(' ');
+        edgeWriter.write(v);
+        edgeWriter.write('\n');
+    }
+
+    // Opens edgesFile for writing after its first 'length' bytes
+    private void openEdges(long length) throws IOException {
+        if ((Files.exists(edgesFile) ? Files.size(edgesFile) : 0) < length) {
+            throw new IOException(edgesFile + " is shorter than its checkpoint");
+        }
+        edgesOut = new FileOutputStream(edgesFile.toFile(), true);
+        edgesOut.getChannel().truncate(length);
+        edgeWriter = new BufferedWriter(new OutputStreamWriter(edgesOut, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    // Flushes the edges written so far to the disk, and returns the length of edgesFile
+    private long syncEdges() throws IOException {
+        edgeWriter.flush();
+        edgesOut.getChannel().force(false);
+        return edgesOut.getChannel().size();
+    }
+
+    private void closeEdges() {
+        if (edgeWriter == null) {
+            return;
+        }
+        try {
+            edgeWriter.close();
         } catch (IOException e) {
-            System.out.println("IOException for file name:  " + fileName);
+            System.out.println("IOException for file name:  " + edgesFile);
             e.printStackTrace();
-        } finally {
+        }
+        edgeWriter = null;
+        edgesOut = null;
+    }
+
+    private void deleteEdges() {
+        try {
+            Files.deleteIfExists(edgesFile);
+        } catch (IOException e) {
+            System.out.println("IOException deleting " + edgesFile);
+            e.printStackTrace();
+        }
+    }
+
+    // Checkpoints the crawl to checkpointDirectory. The journal has a header line, then a block
+    // of lines for each page crawled:
+    //   P <index in frontier> <url>
+    //   E <url of a new edge's target>, for each new edge, in the order they were found
+    //   D
+    // A block without its D line was cut short by a crash, and is ignored. The snapshot has
+    // a header, the number of pages crawled, the length of edgesFile once their edges were
+    // written, and the vertices in frontier order. edgesFile is cut back to that length on
+    // restore, and the journal's blocks write their edges again.
+    private class Checkpoint {
+        private final Path snapshotFile = checkpointDirectory.resolve("crawl.snapshot");
+        private final Path journalFile = checkpointDirectory.resolve("crawl.journal");
+        private final String header = "WikiCrawler checkpoint " + max + " " + seedUrl;
+        private BufferedWriter journal;
+        // The number of pages in the journal, and in the snapshot
+        private int journalPages = 0;
+        private int snapshotPages = 0;
+
+        // Restores the crawl from the snapshot and the journal, if there are any, then compacts
+        // them into a new snapshot and starts a new journal. The seed must be the only vertex.
+        void restore() throws IOException {
+            Files.createDirectories(checkpointDirectory);
+            long edgeBytes = 0;
+            if (Files.exists(snapshotFile)) {
+                try (BufferedReader in = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+                    checkHeader(in.readLine(), snapshotFile);
+                    head = Integer.parseInt(in.readLine());
+                    edgeBytes = Long.parseLong(in.readLine());
+                    int numVertices = Integer.parseInt(in.readLine());
+                    in.readLine();
+                    for (int i = 1; i < numVertices; i++) {
+                        String vertex = in.readLine();
+                        if (vertex == null) {
+                            throw new IOException("Corrupt checkpoint snapshot " + snapshotFile);
+                        }
+                        frontier.add(vertex);
+                        vertices.add(vertex);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Corrupt checkpoint snapshot " + snapshotFile, e);
+                }
+            }
+            if (Files.exists(journalFile)) {
+                // Before the edges of another crawl are cut back
+                try (BufferedReader in = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                    String line = in.readLine();
+                    if (line != null) {
+                        checkHeader(line, journalFile);
+                    }
+                }
+            }
+            openEdges(edgeBytes);
+            if (Files.exists(journalFile)) {
+                replayJournal();
+            }
+            if (head > 0) {
+                System.out.println("Resuming crawl after " + head + " pages");
+            }
+            snapshot();
+        }
+
+        // Applies the journal's complete blocks that come after the snapshot
+        private void replayJournal() throws IOException {
+            try (BufferedReader in = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                // The header, which restore() has checked
+                String line = in.readLine();
+                int index = -1;
+                String u = null;
+                ArrayList<String> newEdges = new ArrayList<>();
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("P ")) {
+                        int split = line.indexOf(' ', 2);
+                        index = Integer.parseInt(line.substring(2, split));
+                        u = line.substring(split + 1);
+                        newEdges.clear();
+                    } else if (line.startsWith("E ")) {
+                        newEdges.add(line.substring(2));
+                    } else if (line.equals("D") && index >= head) {
+                        // Blocks before head are already in the snapshot
+                        if (index != head || !frontier.get(head).equals(u)) {
+                            throw new IOException("The checkpoint journal doesn't follow its snapshot: " + journalFile);
+                        }
+                        head++;
+                        for (String v : newEdges) {
+                            addEdge(u, v);
+                        }
+                    }
+                }
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt checkpoint journal " + journalFile, e);
+            }
+        }
+
+        private void checkHeader(String line, Path file) throws IOException {
+            if (!header.equals(line)) {
+                throw new IOException(file + " is the checkpoint of a different crawl: " + line);
+            }
+        }
+
+        // Journals that page u, frontier[index], was crawled and had the given new edges
+        void pageCrawled(int index, String u, Collection<String> newEdges) throws IOException {
+            journal.write("P " + index + " " + u + "\n");
+            for (String v : newEdges) {
+                journal.write("E " + v + "\n");
+            }
+            journal.write("D\n");
+            // To the OS, so the page survives the process dying
+            journal.flush();
+            journalPages++;
+            if (journalPages >= Math.max(minPagesBetweenSnapshots, snapshotPages)) {
+                snapshot();
+            }
+        }
+
+        // Writes the crawl's vertices to a new snapshot, which replaces the old one atomically,
+        // once its edges are on the disk, and starts a new journal
+        private void snapshot() throws IOException {
+            close();
+            long edgeBytes = syncEdges();
+            Path tmp = checkpointDirectory.resolve("crawl.snapshot.tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+                bw.write(header + "\n" + head + "\n" + edgeBytes + "\n" + frontier.size() + "\n");
+                for (String vertex : frontier) {
+                    bw.write(vertex);
+                    bw.write('\n');
+                }
+                bw.flush();
+                out.getFD().sync();
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // If the process dies before this, the old journal's blocks are skipped as being
+            // before the snapshot's head
+            journal = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8);
+            journal.write(header + "\n");
+            journal.flush();
+            journalPages = 0;
+            snapshotPages = head;
+        }
+
+        void close() {
+            if (journal == null) {
+                return;
+            }
             try {
-                if (bw != null)
-                    bw.close();
-                if (fw != null)
-                    fw.close();
-            } catch (IOException ex) {
-                System.out.println("IOException for file name:  " + fileName);
-                ex.printStackTrace();
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("IOException for file name:  " + journalFile);
+                e.printStackTrace();
             }
+            journal = null;
         }
-    }
 
-    // Curls the given relative url, using the BASE_URL and adhering to the "politeness policy"
-    private String curlUrl(String urlString) {
-        // Wait if necessary, or increment the request counter
-        if (politenessPolicyCounter > NUM_CURLS_BEFORE_WAITING - 1) {
+        // Deletes the checkpoint of a finished crawl
+        void delete() {
             try {
-                print("Waiting " + SECONDS_TO_WAIT + " seconds, per \"politeness policy.\"");
-                Thread.sleep(1000 * SECONDS_TO_WAIT);
-            } catch (InterruptedException e) {
-                System.out.println("Received InterruptedException upon trying to sleep for " + SECONDS_TO_WAIT
-                        + " seconds, per the \"politeness policy.\"");
+                Files.deleteIfExists(journalFile);
+                Files.deleteIfExists(snapshotFile);
+                Files.deleteIfExists(edgesFile);
+            } catch (IOException e) {
+                System.out.println("IOException deleting the checkpoint in " + checkpointDirectory);
                 e.printStackTrace();
             }
-            politenessPolicyCounter = 0;
         }
-        politenessPolicyCounter++;
+    }
 
-        String line;
-        try {
-            print("Curling " + BASE_URL + urlString + " ...");
-            URL url = new URL(BASE_URL + urlString);
-            InputStream is = url.openStream();
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append(' ');
+    // Saves the crawl to the file at fileName. The first line of the file is the number of
+    // vertices found, and the rest is edgesFile, copied without passing through the heap.
+    // Returns 'false' if the file couldn't be written.
+    private boolean saveToFile(int numVertices) {
+        try (FileChannel out = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel in = FileChannel.open(edgesFile, StandardOpenOption.READ)) {
+            out.write(ByteBuffer.wrap((numVertices + "\n").getBytes(StandardCharsets.UTF_8)));
+            long size = in.size();
+            for (long copied = 0; copied < size; ) {
+                copied += in.transferTo(copied, size - copied, out);
             }
-            return sb.toString();
-        } catch (MalformedURLException e) {
-            System.out.println("MalformedURLException:  " + urlString);
-            e.printStackTrace();
+            print("Results saved to " + fileName);
+            return true;
         } catch (IOException e) {
-            System.out.println("IOException:  " + urlString);
+            System.out.println("IOException for file name:  " + fileName);
             e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Curls the given relative url, using the base url and the fetcher, and extracts its links
+    // as extractLinks does while the page downloads. A page that doesn't exist, or whose url is
+    // malformed, has no links; any other failure is thrown. Called from the fetching threads
+    // during a concurrent crawl.
+    private ArrayList<String> curlLinks(String urlString) throws IOException {
+        print("Curling " + baseUrl + urlString + " ...");
+        try (InputStream page = fetcher.open(baseUrl + urlString)) {
+            return LinkScanner.scan(page);
+        } catch (FileNotFoundException | MalformedURLException e) {
+            System.out.println("No page at " + urlString + ": " + e.getMessage());
+            return new ArrayList<>();
         }
-        return null;
     }
 
     // Used for printing helpful information if VERBOSE_OUTPUT is set to 'true'
@@ -0,0 +1,60 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class _GraphGeneratorTest {
+
+    @Test
+    public void componentStructure() throws IOException {
+        for (GraphGenerator.Model model : GraphGenerator.Model.values()) {
+            File file = File.createTempFile("_GraphGeneratorTest", ".txt");
+            file.deleteOnExit();
+            GraphGenerator generator = new GraphGenerator(model, 10000, 80000, 42);
+            // A giant component of 6000 vertices, and 1000 components of 4 vertices
+            generator.setComponentStructure(0.6, 4);
+            generator.write(file.getPath());
+
+            GraphProcessor g = new GraphProcessor(file.getPath());
+            assertEquals(10000, g.numVertices());
+            assertEquals(1001, g.numComponents());
+            assertEquals(6000, g.largestComponent());
+            assertTrue(g.sameComponent("/wiki/Page_0", "/wiki/Page_5999"));
+            assertEquals(4, g.componentVertices("/wiki/Page_6000").size());
+            assertEquals(4, g.componentVertices("/wiki/Page_9999").size());
+        }
+    }
+
+    @Test
+    public void seeded() throws IOException {
+        File first = File.createTempFile("_GraphGeneratorTest", ".txt");
+        File second = File.createTempFile("_GraphGeneratorTest", ".txt");
+        File other = File.createTempFile("_GraphGeneratorTest", ".txt");
+        first.deleteOnExit();
+        second.deleteOnExit();
+        other.deleteOnExit();
+        new GraphGenerator(GraphGenerator.Model.PREFERENTIAL_ATTACHMENT, 1000, 5000, 7).write(first.getPath());
+        new GraphGenerator(GraphGenerator.Model.PREFERENTIAL_ATTACHMENT, 1000, 5000, 7).write(second.getPath());
+        new GraphGenerator(GraphGenerator.Model.PREFERENTIAL_ATTACHMENT, 1000, 5000, 8).write(other.getPath());
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+        assertFalse(Arrays.equals(Files.readAllBytes(first.toPath()), Files.readAllBytes(other.toPath())));
+
+        // 5 links for each vertex but the first, none of them to itself
+        assertEquals(1 + 999 * 5, Files.readAllLines(first.toPath()).size());
+    }
+
+    @Test
+    public void skewedDegrees() throws IOException {
+        File file = File.createTempFile("_GraphGeneratorTest", ".txt");
+        file.deleteOnExit();
+        new GraphGenerator(GraphGenerator.Model.RMAT, 1 << 14, 1 << 17, 1).write(file.getPath());
+        GraphProcessor g = new GraphProcessor(file.getPath());
+        // The busiest vertices have far more than the average of 16 edges
+        String hub = g.topInDegree(1).get(0);
+        assertTrue(g.inDegree(hub) + g.outDegree(hub) > 10 * 16);
+    }
+}
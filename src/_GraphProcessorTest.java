@@ -1,5 +1,20 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import org.junit.Test;
 import org.junit.Before;
@@ -168,4 +183,517 @@ public class _GraphProcessorTest {
         assertArrayEquals(emptyList, actual);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void longChain() throws IOException {
+        // A single cycle of 500,000 pages would overflow the stack of a recursive DFS
+        int n = 500000;
+        File file = File.createTempFile("_GraphProcessorTest_chain", ".txt");
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write(n + "\n");
+        for (int i = 0; i < n; i++) {
+            writer.write("v" + i + " v" + ((i + 1) % n) + "\n");
+        }
+        writer.close();
+
+        GraphProcessor chain = new GraphProcessor(file.getPath());
+        assertEquals(1, chain.numComponents());
+        assertEquals(n, chain.largestComponent());
+        assertTrue(chain.sameComponent("v0", "v" + (n - 1)));
+    }
+
+    @Test
+    public void parallelSCC() throws IOException {
+        GraphProcessor parallel = new GraphProcessor("test/_GraphProcessorTest_data.txt", true);
+        assertEquals(g.numComponents(), parallel.numComponents());
+        assertEquals(g.largestComponent(), parallel.largestComponent());
+        for (char c = 'A'; c <= 'Z'; c++) {
+            String[] expected = g.componentVertices(String.valueOf(c)).toArray(new String[0]);
+            String[] actual = parallel.componentVertices(String.valueOf(c)).toArray(new String[0]);
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+        }
+
+        GraphProcessor wiki = new GraphProcessor("wikiCS.txt", true);
+        assertEquals(9, wiki.numComponents());
+        assertEquals(492, wiki.largestComponent());
+    }
+
+    @Test
+    public void parallelSCCLargeGraphs() throws IOException {
+        // Big enough that forward-backward splits the graph, rather than handing it all to
+        // Kosaraju, which it only does below 4096 vertices
+        for (GraphGenerator.Model model : GraphGenerator.Model.values()) {
+            File file = File.createTempFile("_GraphProcessorTest_scc", ".txt");
+            file.deleteOnExit();
+            GraphGenerator generator = new GraphGenerator(model, 30000, 150000, 7);
+            generator.setComponentStructure(0.5, 3);
+            generator.write(file.getPath());
+
+            GraphProcessor sequential = new GraphProcessor(file.getPath());
+            GraphProcessor parallel = new GraphProcessor(file.getPath(), true);
+            assertEquals(model.toString(), sequential.numComponents(), parallel.numComponents());
+            assertEquals(model.toString(), sequential.largestComponent(), parallel.largestComponent());
+            assertTrue(sequential.largestComponent() >= 15000);
+            // Every component, once
+            boolean[] seen = new boolean[30000];
+            for (int i = 0; i < seen.length; i++) {
+                if (seen[i]) {
+                    continue;
+                }
+                String v = "/wiki/Page_" + i;
+                String[] expected = sequential.componentVertices(v).toArray(new String[0]);
+                String[] actual = parallel.componentVertices(v).toArray(new String[0]);
+                Arrays.sort(expected);
+                Arrays.sort(actual);
+                assertArrayEquals(v, expected, actual);
+                for (String u : expected) {
+                    seen[Integer.parseInt(u.substring("/wiki/Page_".length()))] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bidirectionalBfsPath() throws IOException {
+        // A cycle large enough for bfsPath to search from both ends, with a chord
+        // skipping ahead 1000 vertices from every 1000th vertex
+        int n = GraphProcessor.BIDIRECTIONAL_THRESHOLD + 4464;
+        File file = File.createTempFile("_GraphProcessorTest_chords", ".txt");
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write(n + "\n");
+        for (int i = 0; i < n; i++) {
+            writer.write("v" + i + " v" + ((i + 1) % n) + "\n");
+            if (i % 1000 == 0 && i + 1000 < n) {
+                writer.write("v" + i + " v" + (i + 1000) + "\n");
+            }
+        }
+        writer.close();
+
+        GraphProcessor chords = new GraphProcessor(file.getPath());
+        // 69 chords to v69000, then 999 single steps
+        String[] actual = chords.bfsPath("v0", "v69999").toArray(new String[0]);
+        assertEquals(1 + 69 + 999, actual.length);
+        assertEquals("v0", actual[0]);
+        assertEquals("v1000", actual[1]);
+        assertEquals("v69000", actual[69]);
+        assertEquals("v69999", actual[actual.length - 1]);
+
+        // Around the end of the cycle
+        String[] expected = {"v69998", "v69999", "v0", "v1"};
+        actual = chords.bfsPath("v69998", "v1").toArray(new String[0]);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void bfsPaths() {
+        ArrayList<String[]> pairs = new ArrayList<>();
+        pairs.add(new String[]{"K", "M"});
+        pairs.add(new String[]{"A", "N"});
+        pairs.add(new String[]{"K", "Y"});
+        pairs.add(new String[]{"A", "X"});
+        pairs.add(new String[]{"S", "P"});
+        pairs.add(new String[]{"A", "A"});
+        pairs.add(new String[]{"K", "Don't worry, I'm not a real vertex."});
+        pairs.add(new String[]{"K", "K"});
+
+        ArrayList<ArrayList<String>> paths = g.bfsPaths(pairs);
+        assertEquals(pairs.size(), paths.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(g.bfsPath(pairs.get(i)[0], pairs.get(i)[1]), paths.get(i));
+        }
+        // K and A had several targets each, S only had one
+        assertEquals(0, g.bfsTreeCacheHits());
+        assertEquals(3, g.bfsTreeCacheMisses());
+
+        // The trees from K and A are reused
+        paths = g.bfsPaths(pairs);
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(g.bfsPath(pairs.get(i)[0], pairs.get(i)[1]), paths.get(i));
+        }
+        assertEquals(2, g.bfsTreeCacheHits());
+        assertEquals(4, g.bfsTreeCacheMisses());
+
+        // Without a cache, every group is a miss
+        g.setBfsTreeCacheSize(0);
+        g.bfsPaths(pairs);
+        assertEquals(2, g.bfsTreeCacheHits());
+        assertEquals(7, g.bfsTreeCacheMisses());
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        // Y -> A closes a cycle through E -> Y, merging Y into A's component
+        g.addEdge("Y", "A");
+        assertEquals(5, g.numComponents());
+        assertEquals(10, g.largestComponent());
+        assertTrue(g.sameComponent("Y", "Z"));
+        assertEquals(1, g.outDegree("Y"));
+
+        // Without J -> I, only J, O and P are still on a cycle in I's old component
+        g.removeEdge("J", "I");
+        assertEquals(9, g.numComponents());
+        assertFalse(g.sameComponent("I", "J"));
+        String[] expected = {"J", "O", "P"};
+        String[] actual = g.componentVertices("O").toArray(new String[0]);
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual);
+        assertArrayEquals(new String[]{"Q"}, g.componentVertices("Q").toArray(new String[0]));
+
+        // AA is a new vertex, and it closes a cycle with I and Q
+        g.addEdges(Arrays.asList(new String[]{"Q", "AA"}, new String[]{"AA", "I"}));
+        assertEquals(8, g.numComponents());
+        expected = new String[]{"AA", "I", "Q"};
+        actual = g.componentVertices("AA").toArray(new String[0]);
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(Arrays.asList("I", "Q", "R", "S"), g.bfsPath("I", "S"));
+
+        // Removing edges that don't exist changes nothing
+        g.removeEdges(Arrays.asList(new String[]{"A", "Y"}, new String[]{"Nope", "A"}));
+        assertEquals(8, g.numComponents());
+    }
+
+    @Test
+    public void distancesFrom() {
+        int[] distance = g.distancesFrom("A");
+        assertEquals(26, distance.length);
+        assertEquals(26, g.numVertices());
+        for (int id = 0; id < g.numVertices(); id++) {
+            String v = g.vertexName(id);
+            if (v.equals("A")) {
+                assertEquals(0, distance[id]);
+            } else {
+                assertEquals(v, g.bfsPath("A", v).size() - 1, distance[id]);
+            }
+        }
+        assertEquals(GraphProcessor.UNREACHED, g.distancesFrom("Y")[0]);
+
+        // Invalid vertex
+        for (int d : g.distancesFrom("Nope")) {
+            assertEquals(GraphProcessor.UNREACHED, d);
+        }
+    }
+
+    @Test
+    public void multiSourceBfs() {
+        // More than one batch of 64 sources, with every vertex, duplicates and an invalid vertex
+        ArrayList<String> sources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sources.add(String.valueOf((char) ('A' + i % 26)));
+        }
+        sources.add("Nope");
+        int[][] distances = g.distancesFrom(sources);
+        int[][] hopCounts = g.hopCounts(sources);
+        assertEquals(sources.size(), distances.length);
+        assertEquals(sources.size(), hopCounts.length);
+        for (int i = 0; i < sources.size(); i++) {
+            int[] expected = g.distancesFrom(sources.get(i));
+            assertArrayEquals(expected, distances[i]);
+            int total = 0;
+            for (int d = 0; d < hopCounts[i].length; d++) {
+                assertTrue(hopCounts[i][d] > 0);
+                total += hopCounts[i][d];
+            }
+            assertEquals((int) Arrays.stream(expected).filter(d -> d != GraphProcessor.UNREACHED).count(), total);
+        }
+
+        // Y has no out-edges; from A, the farthest vertex (N) is 13 steps away
+        assertArrayEquals(new int[]{1}, hopCounts[24]);
+        assertEquals(14, hopCounts[0].length);
+        assertEquals(0, hopCounts[100].length);
+    }
+
+    @Test
+    public void degreeIndex() {
+        // Valid vertices
+        assertEquals(1, g.inDegree("Z"));
+        assertEquals(4, g.inDegree("W"));
+        assertEquals(2, g.inDegree("Y"));
+        assertEquals(2, g.inDegree("O"));
+
+        // Invalid vertex
+        assertEquals(0, g.inDegree("Spaghett"));
+
+        // Ties are broken by first appearance in the file
+        assertEquals(Arrays.asList("L", "M", "E", "G"), g.topOutDegree(4));
+        assertEquals(Arrays.asList("W", "Y", "J", "O", "T", "N", "X", "A"), g.topInDegree(8));
+        assertEquals(26, g.topOutDegree(100).size());
+        assertEquals(0, g.topInDegree(0).size());
+
+        // 35 edges among 26 vertices
+        assertArrayEquals(new int[]{1, 18, 5, 1, 1}, g.outDegreeHistogram());
+        int edges = 0;
+        int vertices = 0;
+        int[] inHistogram = g.inDegreeHistogram();
+        for (int d = 0; d < inHistogram.length; d++) {
+            edges += d * inHistogram[d];
+            vertices += inHistogram[d];
+        }
+        assertEquals(35, edges);
+        assertEquals(26, vertices);
+
+        // The index follows changes to the graph
+        g.addEdges(Arrays.asList(new String[]{"A", "W"}, new String[]{"B", "W"}));
+        assertEquals(6, g.inDegree("W"));
+        assertEquals("W", g.topInDegree(1).get(0));
+    }
+
+    @Test
+    public void metrics() throws JMException {
+        GraphMetrics metrics = g.metrics();
+        // Loading is always timed
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertTrue(snapshot.containsKey("phase.load.nanos"));
+        assertTrue(snapshot.containsKey("phase.sccDFS.nanos"));
+        assertTrue(snapshot.get("footprint.graph.bytes") > 0);
+
+        // Queries aren't, until the metrics are enabled
+        g.bfsPath("A", "Z");
+        for (String key : metrics.snapshot().keySet()) {
+            assertFalse(key, key.startsWith("query."));
+        }
+
+        metrics.setEnabled(true);
+        try {
+            g.bfsPath("A", "Z");
+            g.outDegree("A");
+            g.outDegree("B");
+            snapshot = metrics.snapshot();
+            assertEquals(1L, (long) snapshot.get("query.bfsPath.count"));
+            assertTrue(snapshot.get("query.bfsPath.vertices") > 0);
+            assertTrue(snapshot.get("query.bfsPath.edges") > 0);
+            assertTrue(snapshot.get("query.bfsPath.p50.nanos") <= snapshot.get("query.bfsPath.p999.nanos"));
+            assertEquals(2L, (long) snapshot.get("query.outDegree.count"));
+
+            metrics.reset();
+            assertFalse(metrics.snapshot().containsKey("query.bfsPath.count"));
+        } finally {
+            metrics.setEnabled(false);
+        }
+
+        // The same metrics over JMX
+        ObjectName name = metrics.register("_GraphProcessorTest");
+        try {
+            assertEquals(Boolean.FALSE, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled"));
+        } finally {
+            metrics.unregister("_GraphProcessorTest");
+        }
+    }
+
+    @Test
+    public void reachable() {
+        // Every vertex reaches itself, and the vertices of its own component
+        assertTrue(g.reachable("Y", "Y"));
+        assertTrue(g.reachable("A", "Z"));
+        assertTrue(g.reachable("Z", "A"));
+
+        // Across components, only along the condensation's edges
+        assertTrue(g.reachable("A", "N"));
+        assertTrue(g.reachable("L", "T"));
+        assertTrue(g.reachable("H", "O"));
+        assertFalse(g.reachable("N", "A"));
+        assertFalse(g.reachable("Y", "A"));
+        assertFalse(g.reachable("A", "K"));
+        assertFalse(g.reachable("U", "A"));
+        for (char u = 'A'; u <= 'Z'; u++) {
+            for (char v = 'A'; v <= 'Z'; v++) {
+                String from = String.valueOf(u);
+                String to = String.valueOf(v);
+                assertEquals(from + " -> " + to, u == v || !g.bfsPath(from, to).isEmpty(), g.reachable(from, to));
+            }
+        }
+
+        // Invalid vertices
+        assertFalse(g.reachable("A", "Nope"));
+        assertFalse(g.reachable("Nope", "Nope"));
+
+        // The condensation has an edge from the I-J component to the N-T component, and none back
+        int ij = g.componentId("I");
+        int nt = g.componentId("N");
+        assertEquals(-1, g.componentId("Nope"));
+        assertTrue(Arrays.stream(g.condensationChildren(ij)).anyMatch(c -> c == nt));
+        assertEquals(0, g.condensationChildren(nt).length);
+
+        // The index follows changes to the graph
+        g.addEdge("T", "A");
+        assertTrue(g.reachable("N", "A"));
+        assertTrue(g.reachable("I", "Z"));
+        g.removeEdge("T", "A");
+        assertFalse(g.reachable("N", "A"));
+    }
+
+    @Test
+    public void pageRank() throws IOException {
+        double[] ranks = g.pageRank();
+        double sum = 0;
+        for (double rank : ranks) {
+            sum += rank;
+        }
+        assertEquals(1, sum, 1e-9);
+        // topRanked agrees with the ranks
+        ArrayList<String> top = g.topRanked(ranks, 5);
+        assertEquals(5, top.size());
+        double[] topRanks = new double[top.size()];
+        for (int v = 0; v < ranks.length; v++) {
+            int position = top.indexOf(g.vertexName(v));
+            if (position >= 0) {
+                topRanks[position] = ranks[v];
+            }
+        }
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(topRanks[i - 1] >= topRanks[i]);
+        }
+        for (double rank : ranks) {
+            assertTrue(rank <= topRanks[0]);
+        }
+        assertEquals(26, g.topRanked(ranks, 100).size());
+
+        // A -> B, where B has no out-edges, so B's rank is spread over both vertices:
+        // rank(A) = (1 - d + d * rank(B)) / 2 with rank(B) = 1 - rank(A), so rank(A) = 1 / (2 + d)
+        File file = File.createTempFile("_GraphProcessorTest", ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("2\nA B\n");
+        }
+        ranks = new GraphProcessor(file.getPath()).pageRank(0.85, 1e-12, 1000);
+        assertEquals(1 / 2.85, ranks[0], 1e-9);
+        assertEquals(1 - 1 / 2.85, ranks[1], 1e-9);
+
+        // Personalized on the cycle A -> B -> C -> A: the surfer always jumps back to A, so
+        // rank(A) = (1 - d) / (1 - d^3), rank(B) = d * rank(A), and rank(C) = d * rank(B)
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("3\nA B\nB C\nC A\n");
+        }
+        GraphProcessor cycle = new GraphProcessor(file.getPath());
+        ranks = cycle.pageRank();
+        assertEquals(1.0 / 3, ranks[0], 1e-9);
+        ranks = cycle.personalizedPageRank(Arrays.asList("A", "Spaghett"), 0.5, 1e-12, 1000);
+        assertEquals(0.5 / 0.875, ranks[0], 1e-9);
+        assertEquals(0.25 / 0.875, ranks[1], 1e-9);
+        assertEquals(0.125 / 0.875, ranks[2], 1e-9);
+        assertArrayEquals(new double[3], cycle.personalizedPageRank(Arrays.asList("Spaghett"), 0.5, 1e-12, 1000), 0);
+    }
+
+    @Test
+    public void builder() throws IOException {
+        // The same graph, read from a stream instead of the file
+        GraphBuilder builder = new GraphBuilder();
+        try (FileInputStream in = new FileInputStream("test/_GraphProcessorTest_data.txt")) {
+            builder.addEdges(in);
+        }
+        GraphProcessor built = builder.build();
+        assertEquals(g.numVertices(), built.numVertices());
+        assertEquals(g.numComponents(), built.numComponents());
+        assertEquals(g.largestComponent(), built.largestComponent());
+        for (int id = 0; id < g.numVertices(); id++) {
+            String v = g.vertexName(id);
+            assertEquals(v, built.vertexName(id));
+            assertEquals(g.outDegree(v), built.outDegree(v));
+            assertEquals(g.componentVertices(v), built.componentVertices(v));
+            assertEquals(g.bfsPath("A", v), built.bfsPath("A", v));
+        }
+        try {
+            builder.addEdge("A", "B");
+            fail("The builder can't be used after build()");
+        } catch (IllegalStateException expected) {
+        }
+
+        // Edges from a Stream and an Iterator; duplicates are dropped
+        builder = new GraphBuilder();
+        builder.addEdges(Stream.of(new String[]{"A", "B"}, new String[]{"B", "C"}, new String[]{"A", "B"}));
+        builder.addEdges(Arrays.asList(new String[]{"C", "A"}, new String[]{"C", "D"}).iterator());
+        assertEquals(5, builder.numEdges());
+        built = builder.build();
+        assertEquals(4, built.numVertices());
+        assertEquals(1, built.outDegree("A"));
+        assertEquals(2, built.numComponents());
+        assertEquals(Arrays.asList("A", "B", "C", "D"), built.bfsPath("A", "D"));
+
+        // Lines without a space are only allowed as the vertex count header
+        try {
+            new GraphBuilder().addEdges(new ByteArrayInputStream("A B\nC\n".getBytes()));
+            fail("Expected an exception");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void snapshot() throws IOException {
+        File snapshotFile = File.createTempFile("_GraphProcessorTest", ".snapshot");
+        snapshotFile.deleteOnExit();
+        g.saveSnapshot(snapshotFile.getPath());
+
+        assertTrue(GraphSnapshot.read(snapshotFile.getPath()).isFreshFor("test/_GraphProcessorTest_data.txt"));
+        GraphProcessor loaded = new GraphProcessor("test/_GraphProcessorTest_data.txt", snapshotFile.getPath());
+        assertEquals(g.numComponents(), loaded.numComponents());
+        assertEquals(g.largestComponent(), loaded.largestComponent());
+        for (char c = 'A'; c <= 'Z'; c++) {
+            String v = String.valueOf(c);
+            assertEquals(g.outDegree(v), loaded.outDegree(v));
+            assertEquals(g.componentVertices(v), loaded.componentVertices(v));
+            assertEquals(g.bfsPath("A", v), loaded.bfsPath("A", v));
+        }
+
+        // A corrupted snapshot fails its checksum, so the text file is read and the snapshot is rewritten
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+        file.seek(file.length() / 2);
+        int b = file.read();
+        file.seek(file.length() / 2);
+        file.write(b ^ 0xff);
+        file.close();
+        loaded = new GraphProcessor("test/_GraphProcessorTest_data.txt", snapshotFile.getPath());
+        assertEquals(6, loaded.numComponents());
+        assertEquals(9, loaded.largestComponent());
+
+        // Corrupt counts and name lengths are caught before they are used, so the text file is read
+        // instead of allocating huge arrays or failing with a runtime exception
+        // The source path's length is at 40, and the first name's length just after the path
+        int nameAt = 44 + new File("test/_GraphProcessorTest_data.txt").getAbsolutePath().getBytes("UTF-8").length;
+        int[][] corruptions = {{24, Integer.MAX_VALUE}, {24, 1 << 28}, {28, -5}, {32, Integer.MAX_VALUE}, {40, -1},
+                {40, 1 << 30}, {nameAt, -1}, {nameAt, 1 << 30}};
+        for (int[] corruption : corruptions) {
+            g.saveSnapshot(snapshotFile.getPath());
+            file = new RandomAccessFile(snapshotFile, "rw");
+            file.seek(corruption[0]);
+            file.writeInt(corruption[1]);
+            file.close();
+            loaded = new GraphProcessor("test/_GraphProcessorTest_data.txt", snapshotFile.getPath());
+            assertEquals(6, loaded.numComponents());
+            assertEquals(9, loaded.largestComponent());
+        }
+
+        // A snapshot of a different graph is stale, so the text file is read instead
+        GraphProcessor scc2 = new GraphProcessor("test/scc-2.txt");
+        scc2.saveSnapshot(snapshotFile.getPath());
+        loaded = new GraphProcessor("test/_GraphProcessorTest_data.txt", snapshotFile.getPath());
+        assertEquals(6, loaded.numComponents());
+        assertEquals(9, loaded.largestComponent());
+
+        // A snapshot built from another file is stale even if that file has the same length and
+        // modification time
+        File copy = File.createTempFile("_GraphProcessorTest", ".txt");
+        copy.deleteOnExit();
+        Files.copy(Paths.get("test/scc-2.txt"), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        copy.setLastModified(new File("test/scc-2.txt").lastModified());
+        assertFalse(GraphSnapshot.read(snapshotFile.getPath()).isFreshFor(copy.getPath()));
+        loaded = new GraphProcessor(copy.getPath(), snapshotFile.getPath());
+        assertEquals(scc2.numComponents(), loaded.numComponents());
+        assertTrue(GraphSnapshot.read(snapshotFile.getPath()).isFreshFor(copy.getPath()));
+        assertFalse(GraphSnapshot.read(snapshotFile.getPath()).isFreshFor("test/scc-2.txt"));
+
+        // If the source is gone, the snapshot is all there is, so it is used
+        copy.delete();
+        loaded = new GraphProcessor(copy.getPath(), snapshotFile.getPath());
+        assertEquals(scc2.numComponents(), loaded.numComponents());
+
+        // A snapshot that can't be saved doesn't stop the graph from loading
+        loaded = new GraphProcessor("test/_GraphProcessorTest_data.txt",
+                new File(snapshotFile.getPath(), "not-a-directory").getPath());
+        assertEquals(6, loaded.numComponents());
+        assertEquals(9, loaded.largestComponent());
+    }
+
+}
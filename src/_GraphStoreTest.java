@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class _GraphStoreTest {
+
+    @Test
+    public void reload() throws Exception {
+        GraphStore store = new GraphStore("test/_GraphProcessorTest_data.txt");
+        GraphProcessor first = store.current();
+        assertTrue(first.isFrozen());
+        assertEquals(26, store.query(GraphProcessor::numVertices).intValue());
+        try {
+            first.addEdge("A", "B");
+            fail("A frozen graph can't change");
+        } catch (IllegalStateException expected) {
+        }
+
+        GraphProcessor second = store.reload("test/bfs-2.txt").get();
+        assertSame(second, store.current());
+        assertTrue(second.isFrozen());
+        assertEquals(6, store.query(GraphProcessor::numVertices).intValue());
+        // The old snapshot still answers queries that started on it
+        assertEquals(26, first.numVertices());
+
+        // A reload that fails leaves the current snapshot in place
+        try {
+            store.reload("test/missing.txt").get();
+            fail("The graph file doesn't exist");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+        assertSame(second, store.current());
+    }
+
+    @Test
+    public void concurrentQueries() throws Exception {
+        // Large enough that bfsPath uses the bidirectional search
+        File file = File.createTempFile("_GraphStoreTest", ".txt");
+        file.deleteOnExit();
+        GraphGenerator generator = new GraphGenerator(GraphGenerator.Model.RMAT,
+                GraphProcessor.BIDIRECTIONAL_THRESHOLD, 4L * GraphProcessor.BIDIRECTIONAL_THRESHOLD, 5);
+        generator.setComponentStructure(0.5, 3);
+        generator.write(file.getPath());
+        GraphStore store = new GraphStore(file.getPath());
+        GraphProcessor g = store.current();
+
+        Random random = new Random(17);
+        List<String[]> pairs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pairs.add(new String[]{g.vertexName(random.nextInt(g.numVertices())),
+                    g.vertexName(random.nextInt(g.numVertices()))});
+        }
+        // The answers of a single thread
+        List<Object> expected = answers(g, pairs);
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Object>>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(threads.submit(() -> store.query(snapshot -> answers(snapshot, pairs))));
+            }
+            for (Future<List<Object>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    private static List<Object> answers(GraphProcessor g, List<String[]> pairs) {
+        List<Object> answers = new ArrayList<>();
+        for (String[] pair : pairs) {
+            answers.add(g.bfsPath(pair[0], pair[1]));
+            answers.add(g.sameComponent(pair[0], pair[1]));
+            answers.add(g.reachable(pair[0], pair[1]));
+            answers.add(g.componentVertices(pair[0]));
+        }
+        answers.add(g.bfsPaths(pairs));
+        answers.add(Arrays.toString(g.distancesFrom(pairs.get(0)[0])));
+        answers.add(g.topInDegree(10));
+        return answers;
+    }
+}
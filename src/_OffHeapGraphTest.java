@@ -0,0 +1,75 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class _OffHeapGraphTest {
+
+    @Test
+    public void sameAsGraphProcessor() throws IOException {
+        GraphProcessor expected = new GraphProcessor("test/_GraphProcessorTest_data.txt");
+        assertSameQueries(expected, new OffHeapGraph("test/_GraphProcessorTest_data.txt"), new Random(1));
+        assertEquals(0, new OffHeapGraph("test/_GraphProcessorTest_data.txt").outDegree("Spaghett"));
+        assertEquals(-1, new OffHeapGraph("test/_GraphProcessorTest_data.txt").componentId("Spaghett"));
+    }
+
+    @Test
+    public void fileBacked() throws IOException {
+        File file = File.createTempFile("_OffHeapGraphTest", ".txt");
+        file.deleteOnExit();
+        GraphGenerator generator = new GraphGenerator(GraphGenerator.Model.PREFERENTIAL_ATTACHMENT, 20000, 100000, 3);
+        generator.setComponentStructure(0.5, 3);
+        generator.write(file.getPath());
+        File directory = Files.createTempDirectory("_OffHeapGraphTest").toFile();
+        try {
+            GraphProcessor expected = new GraphProcessor(file.getPath());
+            assertSameQueries(expected, new OffHeapGraph(file.getPath(), directory.getPath()), new Random(2));
+            // Only the graph's files are left once it is loaded
+            for (String name : directory.list()) {
+                assertTrue(name, name.endsWith(".bin") || name.equals("graph.meta"));
+            }
+
+            // Opened again from its files
+            assertSameQueries(expected, OffHeapGraph.open(directory.getPath()), new Random(3));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        try {
+            OffHeapGraph.open(directory.getPath());
+            fail("The graph's files are gone");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static void assertSameQueries(GraphProcessor expected, OffHeapGraph actual, Random random) {
+        assertEquals(expected.numVertices(), actual.numVertices());
+        assertEquals(expected.numComponents(), actual.numComponents());
+        assertEquals(expected.largestComponent(), actual.largestComponent());
+        for (int id = 0; id < expected.numVertices(); id++) {
+            String v = expected.vertexName(id);
+            assertEquals(v, actual.vertexName(id));
+            assertEquals(expected.outDegree(v), actual.outDegree(v));
+            assertEquals(expected.inDegree(v), actual.inDegree(v));
+            assertEquals(expected.componentId(v), actual.componentId(v));
+        }
+        for (int i = 0; i < 200; i++) {
+            String u = expected.vertexName(random.nextInt(expected.numVertices()));
+            String v = expected.vertexName(random.nextInt(expected.numVertices()));
+            assertEquals(expected.sameComponent(u, v), actual.sameComponent(u, v));
+            assertEquals(expected.componentVertices(u), actual.componentVertices(u));
+            // Paths of the same length; with many vertices GraphProcessor searches from both
+            // ends, so ties may be broken differently
+            assertEquals(expected.bfsPath(u, v).size(), actual.bfsPath(u, v).size());
+        }
+    }
+}
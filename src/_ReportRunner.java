@@ -9,17 +9,26 @@ public class _ReportRunner {
 //        WikiCrawler w = new WikiCrawler("/wiki/Computer_Science", 500, "wikiCS.txt");
 //        w.crawl();
 
-        GraphProcessor g = new GraphProcessor("wikiCS.txt");
+        // Reuses the snapshot from the last run, unless wikiCS.txt has changed since
+        GraphProcessor g = new GraphProcessor("wikiCS.txt", "wikiCS.snapshot");
 
         highestOut(g);
+        highestIn(g);
         numComponents(g);
         sizeOfLargest(g);
+        crawlDepths(g);
     }
 
     // Vertex with highest out degree
     private static void highestOut(GraphProcessor g) {
-        // Make the private method in the GraphProcessor class public and uncomment below
-//        System.out.println("Highest out degree:  " + g.largestOutDegree());
+        String v = g.topOutDegree(1).get(0);
+        System.out.println("Highest out degree:  " + v + " , " + g.outDegree(v));
+    }
+
+    // Vertex with highest in degree
+    private static void highestIn(GraphProcessor g) {
+        String v = g.topInDegree(1).get(0);
+        System.out.println("Highest in degree:  " + v + " , " + g.inDegree(v));
     }
 
     // Number of components of the graph
@@ -31,4 +40,20 @@ public class _ReportRunner {
     private static void sizeOfLargest(GraphProcessor g) {
         System.out.println("Size of largest component:  " + g.largestComponent());
     }
+
+    // Number of pages at each distance from the page the crawl started at
+    private static void crawlDepths(GraphProcessor g) {
+        int[] distance = g.distancesFrom("/wiki/Computer_Science");
+        int[] count = new int[g.numVertices() + 1];
+        int maxDepth = 0;
+        for (int d : distance) {
+            if (d != GraphProcessor.UNREACHED) {
+                count[d]++;
+                maxDepth = Math.max(maxDepth, d);
+            }
+        }
+        for (int d = 0; d <= maxDepth; d++) {
+            System.out.println("Pages at depth " + d + ":  " + count[d]);
+        }
+    }
 }
@@ -1,9 +1,35 @@
+import com.sun.net.httpserver.HttpServer;
 import org.junit.Test;
 import org.junit.Before;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -42,6 +68,56 @@ public class _WikiCrawlerTest {
         assertArrayEquals(expectedLinks, actual);
     }
 
+    @Test
+    public void linkScanner() throws IOException {
+        String[] docs = {
+                readFile("test/_WikiCrawlerTest_extractLinks_test_data.txt"),
+                "<a href=\"/wiki/Before\"><p><a href=\"/wiki/After\">",
+                "<P><a href=\"/wiki/Upper\"> <p> <a href=\"/wiki/Lower\">",
+                "no paragraph <a href=\"/wiki/None\">",
+                "<<p><<a href=\"/wiki/A\"><a  href = \"/wiki/B\"><ahref=\"/wiki/C\"><a href=\"/wiki/D",
+                "<p><a\nhref\r\n=\n\"/wiki/Lines\"><a href='/wiki/Single'><A HREF=\"/wiki/Caps\">",
+                // A link with ':' fails, and the tag inside it is found instead
+                "<p><a href=\"/wiki/File:<a href=\"/wiki/Inner\"><a href=\"/wiki/x#y\"><a href=\"/wiki/Outer<a href=\"",
+                "<p><a href=\"/wiki/Caf\u00e9_\u4e2d\u6587\"><a href=\"/wikis/No\"><a href=\"/wiki/\"><a href=\"/wiki/Help:No\">",
+                "<p><a href=\"/wiki/" + "x".repeat(3 * LinkScanner.BUFFER_SIZE) + "\">",
+                // Hrefs broken across lines aren't links
+                "<p><a href=\"/wiki/Multi\nLine\"><a href=\"/wiki/Ok\"><a href=\"/wiki/Cr\r\nLf\"><a href=\"/wiki/Last\">",
+        };
+        Pattern p = Pattern.compile("<[pP]>");
+        Pattern a = Pattern.compile("<a[ \r\n]+href[ \r\n]*=[ \r\n]*\"(/wiki/[^#:\r\n]*?)\"");
+        for (String doc : docs) {
+            // The regular expressions extractLinks used before, with links that don't span lines
+            ArrayList<String> expected = new ArrayList<>();
+            Matcher matcher = p.matcher(doc);
+            if (matcher.find()) {
+                matcher = a.matcher(doc.substring(matcher.start()));
+                while (matcher.find()) {
+                    expected.add(matcher.group(1));
+                }
+            }
+            assertEquals(expected, w.extractLinks(doc));
+
+            // The same page read as bytes, a few at a time
+            byte[] bytes = doc.getBytes(StandardCharsets.UTF_8);
+            Random random = new Random(bytes.length);
+            InputStream trickle = new ByteArrayInputStream(bytes) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 1 + random.nextInt(7)));
+                }
+            };
+            assertEquals(expected, LinkScanner.scan(trickle));
+            assertEquals(expected, LinkScanner.scan(new ByteArrayInputStream(bytes)));
+        }
+
+        // An href broken across lines isn't a link, and doesn't swallow the links after it
+        ArrayList<String> expected = new ArrayList<>();
+        expected.add("/wiki/Ok");
+        expected.add("/wiki/Last");
+        assertEquals(expected, w.extractLinks(docs[docs.length - 1]));
+    }
+
     @Test
     public void crawl() {
         String expectedFilename = "test/_WikiCrawlerTest_crawl_expected_results.txt";
@@ -64,6 +140,321 @@ public class _WikiCrawlerTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void concurrentCrawl() throws Exception {
+        HttpServer server = startServer(10);
+        try {
+            String baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+            // The pages of the local mirror
+            assertEquals("3\n"
+                            + "/wiki/AA.html /wiki/BB.html\n"
+                            + "/wiki/BB.html /wiki/AA.html\n"
+                            + "/wiki/BB.html /wiki/CB.html\n"
+                            + "/wiki/CB.html /wiki/AA.html\n"
+                            + "/wiki/CB.html /wiki/BB.html\n",
+                    crawl(baseUrl, "/wiki/AA.html", 20, 4));
+            assertEquals("2\n/wiki/AA.html /wiki/BB.html\n/wiki/BB.html /wiki/AA.html\n",
+                    crawl(baseUrl, "/wiki/AA.html", 2, 4));
+
+            // Generated pages: the max is reached partway through, and a concurrent crawl must
+            // find the same vertices and edges, in the same order, as a sequential one
+            String expected = crawl(baseUrl, "/wiki/G0", 60, 1);
+            assertTrue(expected.startsWith("60\n"));
+            assertEquals(expected, crawl(baseUrl, "/wiki/G0", 60, 8));
+        } finally {
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdown();
+        }
+    }
+
+    @Test
+    public void fetchers() throws Exception {
+        HttpServer server = startServer(0);
+        // Fails twice with 503 before it answers
+        AtomicInteger flakyRequests = new AtomicInteger();
+        server.createContext("/flaky", exchange -> {
+            int status = flakyRequests.incrementAndGet() <= 2 ? 503 : 200;
+            exchange.sendResponseHeaders(status, status == 200 ? 2 : -1);
+            if (status == 200) {
+                exchange.getResponseBody().write("ok".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.close();
+        });
+        // Sends the headers and part of the body, then stalls
+        AtomicInteger stalledRequests = new AtomicInteger();
+        server.createContext("/stalled", exchange -> {
+            stalledRequests.incrementAndGet();
+            exchange.sendResponseHeaders(200, 100);
+            exchange.getResponseBody().write("<p>".getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        // Stalls halfway through the page the first time, then sends it whole
+        AtomicInteger stallsOnceRequests = new AtomicInteger();
+        byte[] longPage = "<p>".concat("<a href=\"/wiki/X\">x</a> ".repeat(2000)).getBytes(StandardCharsets.UTF_8);
+        server.createContext("/stalls-once", exchange -> {
+            boolean stall = stallsOnceRequests.incrementAndGet() == 1;
+            exchange.sendResponseHeaders(200, longPage.length);
+            exchange.getResponseBody().write(longPage, 0, stall ? longPage.length / 2 : longPage.length);
+            exchange.getResponseBody().flush();
+            if (stall) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.close();
+        });
+        try {
+            String baseUrl = "http://localhost:" + server.getAddress().getPort();
+            PolitenessPolicy unlimited = new PolitenessPolicy(1e6, 1000);
+            HttpPageFetcher http = new HttpPageFetcher(unlimited, Duration.ofSeconds(10), 3, Duration.ofMillis(1));
+
+            // The server gzips the page
+            String page = new String(Files.readAllBytes(Paths.get("test/server/wiki/BB.html")), StandardCharsets.UTF_8);
+            assertEquals(page, http.fetch(baseUrl + "/wiki/BB.html"));
+            assertEquals("ok", http.fetch(baseUrl + "/flaky"));
+            assertEquals(3, flakyRequests.get());
+
+            // Too few retries, and a page that doesn't exist, which isn't retried
+            flakyRequests.set(0);
+            HttpPageFetcher once = new HttpPageFetcher(unlimited, Duration.ofSeconds(10), 1, Duration.ofMillis(1));
+            try {
+                once.fetch(baseUrl + "/flaky");
+                fail("The second request fails too");
+            } catch (IOException expected) {
+            }
+            assertEquals(2, flakyRequests.get());
+
+            // The timeout bounds the whole body, and a body that times out is retried
+            HttpPageFetcher impatient = new HttpPageFetcher(unlimited, Duration.ofMillis(200), 1, Duration.ofMillis(1));
+            long start = System.nanoTime();
+            try {
+                impatient.fetch(baseUrl + "/stalled");
+                fail("The body never arrives");
+            } catch (IOException expected) {
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+            assertEquals(2, stalledRequests.get());
+            assertEquals(new String(longPage, StandardCharsets.UTF_8), impatient.fetch(baseUrl + "/stalls-once"));
+            assertEquals(2, stallsOnceRequests.get());
+
+            // Urls HttpClient can't send are MalformedURLExceptions, which the crawler skips
+            for (String url : new String[]{"/wiki/BB.html", "localhost/wiki/BB.html", "ftp://localhost/wiki/BB.html",
+                    "http:///wiki/BB.html", "http://local host/wiki"}) {
+                try {
+                    http.fetch(url);
+                    fail("Malformed url " + url);
+                } catch (MalformedURLException expected) {
+                }
+            }
+            try {
+                http.fetch(baseUrl + "/wiki/Missing.html");
+                fail("The page doesn't exist");
+            } catch (FileNotFoundException expected) {
+            }
+
+            // The local mirror has the same pages as the server
+            FilePageFetcher mirror = new FilePageFetcher("test/server");
+            assertEquals(page, mirror.fetch("/wiki/BB.html"));
+            assertEquals(page, mirror.fetch("http://localhost/wiki/BB.html"));
+            try {
+                mirror.fetch("/../src/WikiCrawler.java");
+                fail("Only files in the mirror are pages");
+            } catch (IOException expected) {
+            }
+            File fromServer = File.createTempFile("_WikiCrawlerTest", ".txt");
+            fromServer.deleteOnExit();
+            File fromMirror = File.createTempFile("_WikiCrawlerTest", ".txt");
+            fromMirror.deleteOnExit();
+            crawl(http, baseUrl, "/wiki/AA.html", 20, 1, fromServer);
+            crawl(mirror, "", "/wiki/AA.html", 20, 4, fromMirror);
+            assertEquals(readFile(fromServer.getPath()), readFile(fromMirror.getPath()));
+        } finally {
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdown();
+        }
+    }
+
+    @Test
+    public void resume() throws IOException {
+        PageFetcher pages = url -> new ByteArrayInputStream(generatedPage(url));
+        File file = File.createTempFile("_WikiCrawlerTest", ".txt");
+        file.deleteOnExit();
+        crawl(pages, "", "/wiki/G0", 100, 1, file);
+        String expected = readFile(file.getPath());
+
+        Path directory = Files.createTempDirectory("_WikiCrawlerTest");
+        Path journal = directory.resolve("crawl.journal");
+
+        // A server that can't be reached stops the crawl before the seed, and keeps the checkpoint
+        HttpPageFetcher unreachable = new HttpPageFetcher(new PolitenessPolicy(1e6, 1000), Duration.ofSeconds(1), 1,
+                Duration.ofMillis(1));
+        WikiCrawler offline = new WikiCrawler(unreachable, "http://127.0.0.1:1", "/wiki/G0", 100, file.getPath());
+        offline.setCheckpointDirectory(directory.toString(), 10);
+        try {
+            offline.crawl();
+            fail("The server can't be reached");
+        } catch (UncheckedIOException expectedOutage) {
+        }
+        assertEquals(expected, readFile(file.getPath()));
+        assertTrue(Files.exists(journal));
+        assertTrue(Files.exists(directory.resolve("crawl.snapshot")));
+
+        // Crashes after 30 pages, after 25 more fetched 4 at a time, and after 20 more, and network
+        // outages after 15 more and after 5 more fetched 4 at a time
+        int[][] crashes = {{30, 1, 0}, {25, 4, 0}, {20, 1, 0}, {15, 1, 1}, {5, 4, 1}};
+        for (int[] crash : crashes) {
+            AtomicInteger fetched = new AtomicInteger();
+            PageFetcher crashing = url -> {
+                if (fetched.incrementAndGet() > crash[0]) {
+                    if (crash[2] == 1) {
+                        throw new ConnectException("Network is unreachable");
+                    }
+                    throw new IllegalStateException("Crash");
+                }
+                return pages.open(url);
+            };
+            WikiCrawler crawler = new WikiCrawler(crashing, "", "/wiki/G0", 100, file.getPath());
+            crawler.setCheckpointDirectory(directory.toString(), 10);
+            try {
+                crawler.crawl(crash[1]);
+                fail("The crawl crashes");
+            } catch (IllegalStateException | UncheckedIOException expectedCrash) {
+                assertEquals(crash[2] == 1, expectedCrash instanceof UncheckedIOException);
+            }
+            assertEquals(expected, readFile(file.getPath()));
+            assertTrue(Files.exists(journal));
+            assertTrue(Files.size(directory.resolve("crawl.edges")) > 0);
+            // A block cut short as the process died
+            Files.write(journal, "P 1000 /wiki/G0\nE /wiki/G".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+        }
+
+        // A crawl with a different max can't use the checkpoint
+        WikiCrawler different = new WikiCrawler(pages, "", "/wiki/G0", 99, file.getPath());
+        different.setCheckpointDirectory(directory.toString());
+        try {
+            different.crawl();
+            fail("The checkpoint is for another crawl");
+        } catch (UncheckedIOException expectedMismatch) {
+        }
+
+        WikiCrawler resumed = new WikiCrawler(pages, "", "/wiki/G0", 100, file.getPath());
+        resumed.setCheckpointDirectory(directory.toString(), 10);
+        resumed.crawl();
+        assertEquals(expected, readFile(file.getPath()));
+        // A finished crawl leaves no checkpoint
+        assertFalse(Files.exists(journal));
+        assertFalse(Files.exists(directory.resolve("crawl.snapshot")));
+        assertFalse(Files.exists(directory.resolve("crawl.edges")));
+        Files.delete(directory);
+
+        // A page that doesn't exist is a page without links, and the crawl goes on
+        PageFetcher missingG4 = url -> {
+            if (url.equals("/wiki/G4")) {
+                throw new FileNotFoundException("No page for " + url);
+            }
+            return pages.open(url);
+        };
+        crawl(missingG4, "", "/wiki/G0", 100, 1, file);
+        String withoutG4 = readFile(file.getPath());
+        assertFalse(withoutG4.contains("/wiki/G4 "));
+        assertTrue(withoutG4.contains(" /wiki/G4\n"));
+    }
+
+    @Test
+    public void politenessPolicy() throws Exception {
+        PolitenessPolicy policy = new PolitenessPolicy(200, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            policy.acquire("localhost");
+        }
+        // The first 5 requests are a burst, and the other 20 are 5ms apart
+        assertTrue(System.nanoTime() - start >= 95_000_000L);
+
+        // Each host has its own bucket
+        start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            policy.acquire("example.org");
+        }
+        assertTrue(System.nanoTime() - start < 95_000_000L);
+    }
+
+    // Crawls a local server as fast as it answers, and returns the crawler's output
+    private static String crawl(String baseUrl, String seedUrl, int max, int threads) throws IOException {
+        File file = File.createTempFile("_WikiCrawlerTest", ".txt");
+        file.deleteOnExit();
+        crawl(new HttpPageFetcher(new PolitenessPolicy(1e6, 1000)), baseUrl, seedUrl, max, threads, file);
+        // The edges written during the crawl are gone once they are saved
+        assertFalse(new File(file.getPath() + ".edges").exists());
+        return readFile(file.getPath());
+    }
+
+    private static void crawl(PageFetcher fetcher, String baseUrl, String seedUrl, int max, int threads, File file) {
+        new WikiCrawler(fetcher, baseUrl, seedUrl, max, file.getPath()).crawl(threads);
+    }
+
+    // Serves the pages in test/server, and generated pages /wiki/G0, /wiki/G1, ... that link to
+    // one another, each after 'latencyMillis' and gzipped if the client accepts it
+    private static HttpServer startServer(int latencyMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] page;
+            if (path.startsWith("/wiki/G")) {
+                page = generatedPage(path);
+            } else {
+                Path file = Paths.get("test/server", path);
+                if (!Files.isRegularFile(file)) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                page = Files.readAllBytes(file);
+            }
+            String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accepted != null && accepted.contains("gzip")) {
+                ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                    out.write(page);
+                }
+                page = gzipped.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(page);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // The generated page at /wiki/G<n>, which links to five other generated pages
+    private static byte[] generatedPage(String path) {
+        int n = Integer.parseInt(path.substring(path.indexOf("/wiki/G") + "/wiki/G".length()));
+        StringBuilder sb = new StringBuilder("<html><body><a href=\"/wiki/Main\"></a><p>");
+        for (int i = 1; i <= 5; i++) {
+            sb.append("<a href=\"/wiki/G").append((n * 7 + i * i) % 400).append("\">link</a>\n");
+        }
+        sb.append("<a href=\"/wiki/G").append(n).append("#top\"></a></p></body></html>");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     private static String readFile(String filename) throws IOException {
         BufferedReader reader = new BufferedReader(new FileReader(filename));
         StringBuilder sb = new StringBuilder();